@@ -26,6 +26,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.navigation.NavigationView;
 
@@ -36,6 +37,7 @@ import xyz.quaver.floatingsearchview.sample.fragment.BaseExampleFragment;
 import xyz.quaver.floatingsearchview.sample.fragment.ScrollingSearchExampleFragment;
 import xyz.quaver.floatingsearchview.sample.fragment.SlidingSearchResultsExampleFragment;
 import xyz.quaver.floatingsearchview.sample.fragment.SlidingSearchViewExampleFragment;
+import xyz.quaver.floatingsearchview.suggestions.SearchSuggestionsAdapter;
 
 public class MainActivity extends AppCompatActivity
         implements BaseExampleFragment.BaseExampleFragmentCallbacks, NavigationView.OnNavigationItemSelectedListener {
@@ -44,6 +46,9 @@ public class MainActivity extends AppCompatActivity
 
     private DrawerLayout mDrawerLayout;
 
+    //the suggestion rows are reused by the search views of all the example fragments
+    private final RecyclerView.RecycledViewPool mSuggestionViewPool = SearchSuggestionsAdapter.createViewPool(10);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -59,6 +64,7 @@ public class MainActivity extends AppCompatActivity
     @Override
     public void onAttachSearchViewToDrawer(FloatingSearchView searchView) {
         searchView.attachNavigationDrawerToMenuButton(mDrawerLayout);
+        searchView.setSuggestionViewPool(mSuggestionViewPool);
     }
 
     @Override
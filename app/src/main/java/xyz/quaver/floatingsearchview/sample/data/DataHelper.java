@@ -20,7 +20,6 @@
 package xyz.quaver.floatingsearchview.sample.data;
 
 import android.content.Context;
-import android.widget.Filter;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -34,10 +33,17 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import xyz.quaver.floatingsearchview.suggestions.IncrementalSuggestionFilter;
+import xyz.quaver.floatingsearchview.suggestions.PrefixSuggestionIndex;
+import xyz.quaver.floatingsearchview.suggestions.SuggestionExecutor;
+
 public class DataHelper {
 
     private static final String COLORS_FILE_NAME = "colors.json";
 
+    private static final Object FIND_SUGGESTIONS_TOKEN = new Object();
+    private static final Object FIND_COLORS_TOKEN = new Object();
+
     private static List<ColorWrapper> sColorWrappers = new ArrayList<>();
 
     private static List<ColorSuggestion> sColorSuggestions =
@@ -61,6 +67,14 @@ public class DataHelper {
                     new ColorSuggestion("Red"),
                     new ColorSuggestion("Orchid")));
 
+    private static PrefixSuggestionIndex<ColorSuggestion> sColorSuggestionIndex =
+            new PrefixSuggestionIndex<>(sColorSuggestions);
+
+    private static IncrementalSuggestionFilter<ColorSuggestion> sColorSuggestionFilter =
+            new IncrementalSuggestionFilter<>(
+                    query -> sColorSuggestionIndex.find(query),
+                    (suggestion, query) -> suggestion.getBody().regionMatches(true, 0, query, 0, query.length()));
+
     public interface OnFindColorsListener {
         void onResults(List<ColorWrapper> results);
     }
@@ -92,54 +106,34 @@ public class DataHelper {
 
     public static void findSuggestions(Context context, String query, final int limit, final long simulatedDelay,
                                        final OnFindSuggestionsListener listener) {
-        new Filter() {
-
-            @Override
-            protected FilterResults performFiltering(CharSequence constraint) {
+        SuggestionExecutor.submit(FIND_SUGGESTIONS_TOKEN, () -> {
 
-                try {
-                    Thread.sleep(simulatedDelay);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-
-                DataHelper.resetSuggestionsHistory();
-                List<ColorSuggestion> suggestionList = new ArrayList<>();
-                if (!(constraint == null || constraint.length() == 0)) {
+            try {
+                Thread.sleep(simulatedDelay);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
 
-                    for (ColorSuggestion suggestion : sColorSuggestions) {
-                        if (suggestion.getBody().toUpperCase()
-                                .startsWith(constraint.toString().toUpperCase())) {
+            DataHelper.resetSuggestionsHistory();
+            List<ColorSuggestion> suggestionList = new ArrayList<>();
+            if (!(query == null || query.length() == 0)) {
+                suggestionList.addAll(sColorSuggestionFilter.filter(query, limit));
+            }
 
-                            suggestionList.add(suggestion);
-                            if (limit != -1 && suggestionList.size() == limit) {
-                                break;
-                            }
-                        }
-                    }
+            Collections.sort(suggestionList, new Comparator<ColorSuggestion>() {
+                @Override
+                public int compare(ColorSuggestion lhs, ColorSuggestion rhs) {
+                    return lhs.getIsHistory() ? -1 : 0;
                 }
+            });
 
-                FilterResults results = new FilterResults();
-                Collections.sort(suggestionList, new Comparator<ColorSuggestion>() {
-                    @Override
-                    public int compare(ColorSuggestion lhs, ColorSuggestion rhs) {
-                        return lhs.getIsHistory() ? -1 : 0;
-                    }
-                });
-                results.values = suggestionList;
-                results.count = suggestionList.size();
-
-                return results;
-            }
+            return suggestionList;
+        }, results -> {
 
-            @Override
-            protected void publishResults(CharSequence constraint, FilterResults results) {
-
-                if (listener != null) {
-                    listener.onResults((List<ColorSuggestion>) results.values);
-                }
+            if (listener != null) {
+                listener.onResults(results);
             }
-        }.filter(query);
+        });
 
     }
 
@@ -147,41 +141,29 @@ public class DataHelper {
     public static void findColors(Context context, String query, final OnFindColorsListener listener) {
         initColorWrapperList(context);
 
-        new Filter() {
+        SuggestionExecutor.submit(FIND_COLORS_TOKEN, () -> {
 
-            @Override
-            protected FilterResults performFiltering(CharSequence constraint) {
+            List<ColorWrapper> suggestionList = new ArrayList<>();
 
+            if (!(query == null || query.length() == 0)) {
 
-                List<ColorWrapper> suggestionList = new ArrayList<>();
+                for (ColorWrapper color : sColorWrappers) {
+                    if (color.getName().toUpperCase()
+                            .startsWith(query.toUpperCase())) {
 
-                if (!(constraint == null || constraint.length() == 0)) {
-
-                    for (ColorWrapper color : sColorWrappers) {
-                        if (color.getName().toUpperCase()
-                                .startsWith(constraint.toString().toUpperCase())) {
-
-                            suggestionList.add(color);
-                        }
+                        suggestionList.add(color);
                     }
-
                 }
 
-                FilterResults results = new FilterResults();
-                results.values = suggestionList;
-                results.count = suggestionList.size();
-
-                return results;
             }
 
-            @Override
-            protected void publishResults(CharSequence constraint, FilterResults results) {
+            return suggestionList;
+        }, results -> {
 
-                if (listener != null) {
-                    listener.onResults((List<ColorWrapper>) results.values);
-                }
+            if (listener != null) {
+                listener.onResults(results);
             }
-        }.filter(query);
+        });
 
     }
 
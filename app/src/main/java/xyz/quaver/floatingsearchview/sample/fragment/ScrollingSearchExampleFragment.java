@@ -21,7 +21,6 @@ package xyz.quaver.floatingsearchview.sample.fragment;
 
 import android.graphics.Color;
 import android.os.Bundle;
-import android.text.Html;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -180,6 +179,7 @@ public class ScrollingSearchExampleFragment extends BaseExampleFragment implemen
             if (item.getItemId() == R.id.action_change_colors) {
 
                 mIsDarkSearchTheme = true;
+                mSearchView.setSuggestionHighlightColor(Color.parseColor("#bfbfbf"));
 
                 /*TODO
                 //demonstrate setting colors for items
@@ -219,11 +219,12 @@ public class ScrollingSearchExampleFragment extends BaseExampleFragment implemen
          * Keep in mind that the suggestion list is a RecyclerView, so views are reused for different
          * items in the list.
          */
+        mSearchView.setHighlightSuggestionMatches(true);
+        mSearchView.setSuggestionHighlightColor(Color.parseColor("#787878"));
         mSearchView.setOnBindSuggestionCallback((binding, item, position) -> {
             ColorSuggestion colorSuggestion = (ColorSuggestion) item;
 
             String textColor = mIsDarkSearchTheme ? "#ffffff" : "#000000";
-            String textLight = mIsDarkSearchTheme ? "#bfbfbf" : "#787878";
 
             if (colorSuggestion.getIsHistory()) {
                 binding.leftIcon.setImageDrawable(ResourcesCompat.getDrawable(getResources(),
@@ -237,10 +238,6 @@ public class ScrollingSearchExampleFragment extends BaseExampleFragment implemen
             }
 
             binding.body.setTextColor(Color.parseColor(textColor));
-            String text = colorSuggestion.getBody()
-                    .replaceFirst(mSearchView.getQuery(),
-                            "<font color=\"" + textLight + "\">" + mSearchView.getQuery() + "</font>");
-            binding.body.setText(Html.fromHtml(text));
 
             return Unit.INSTANCE;
         });
@@ -28,7 +28,6 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
-import android.text.Html;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -197,6 +196,7 @@ public class SlidingSearchViewExampleFragment extends BaseExampleFragment {
             if (item.getItemId() == R.id.action_change_colors) {
 
                 mIsDarkSearchTheme = true;
+                mSearchView.setSuggestionHighlightColor(Color.parseColor("#bfbfbf"));
 
                 /* TODO
                 //demonstrate setting colors for items
@@ -236,11 +236,12 @@ public class SlidingSearchViewExampleFragment extends BaseExampleFragment {
          * Keep in mind that the suggestion list is a RecyclerView, so views are reused for different
          * items in the list.
          */
+        mSearchView.setHighlightSuggestionMatches(true);
+        mSearchView.setSuggestionHighlightColor(Color.parseColor("#787878"));
         mSearchView.setOnBindSuggestionCallback((binding, item, itemPosition) -> {
             ColorSuggestion colorSuggestion = (ColorSuggestion) item;
 
             String textColor = mIsDarkSearchTheme ? "#ffffff" : "#000000";
-            String textLight = mIsDarkSearchTheme ? "#bfbfbf" : "#787878";
 
             if (colorSuggestion.getIsHistory()) {
                 binding.leftIcon.setImageDrawable(ContextCompat.getDrawable(requireContext(), R.drawable.history));
@@ -253,10 +254,6 @@ public class SlidingSearchViewExampleFragment extends BaseExampleFragment {
             }
 
             binding.body.setTextColor(Color.parseColor(textColor));
-            String text = colorSuggestion.getBody()
-                    .replaceFirst(mSearchView.getQuery(),
-                            "<font color=\"" + textLight + "\">" + mSearchView.getQuery() + "</font>");
-            binding.body.setText(Html.fromHtml(text));
 
             return Unit.INSTANCE;
         });
@@ -28,6 +28,8 @@ import android.content.res.TypedArray
 import android.graphics.Color
 import android.graphics.drawable.ColorDrawable
 import android.graphics.drawable.Drawable
+import android.os.Looper
+import android.os.MessageQueue
 import android.os.Parcel
 import android.os.Parcelable
 import android.util.AttributeSet
@@ -43,20 +45,30 @@ import androidx.appcompat.view.menu.MenuBuilder
 import androidx.appcompat.view.menu.MenuItemImpl
 import androidx.core.content.ContextCompat
 import androidx.core.graphics.drawable.DrawableCompat
+import androidx.core.text.PrecomputedTextCompat
 import androidx.core.view.*
 import androidx.core.widget.addTextChangedListener
 import androidx.drawerlayout.widget.DrawerLayout
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.color.MaterialColors
+import kotlinx.coroutines.*
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
 import xyz.quaver.floatingsearchview.databinding.FloatingSearchLayoutBinding
 import xyz.quaver.floatingsearchview.suggestions.OnBindSuggestionCallback
+import xyz.quaver.floatingsearchview.suggestions.SearchSuggestionPipeline
 import xyz.quaver.floatingsearchview.suggestions.SearchSuggestionsAdapter
+import xyz.quaver.floatingsearchview.suggestions.SuggestionsLayoutManager
+import xyz.quaver.floatingsearchview.suggestions.StreamingSuggestionProvider
+import xyz.quaver.floatingsearchview.suggestions.SuggestionCache
+import xyz.quaver.floatingsearchview.suggestions.SuggestionProvider
 import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestionItemCallback
+import xyz.quaver.floatingsearchview.suggestions.model.SuggestionKeyCodec
 import xyz.quaver.floatingsearchview.util.*
-import xyz.quaver.floatingsearchview.util.adapter.GestureDetectorListenerAdapter
-import xyz.quaver.floatingsearchview.util.adapter.OnItemTouchListenerAdapter
 import kotlin.math.abs
+import kotlin.math.max
 import kotlin.math.min
 import kotlin.properties.Delegates
 
@@ -74,6 +86,9 @@ private const val BACKGROUND_DRAWABLE_ALPHA_SEARCH_NOT_FOCUSED = 0
 private const val BACKGROUND_FADE_ANIM_DURATION = 250L
 private const val MENU_ICON_ANIM_DURATION = 250L
 
+// RecyclerView.RecycledViewPool keeps 5 views per type by default
+private const val DEFAULT_MAX_RECYCLED_VIEWS = 5
+
 private val SUGGEST_ITEM_ADD_ANIM_INTERPOLATOR: Interpolator = LinearInterpolator()
 
 open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs: AttributeSet? = null) : FrameLayout(context, attrs) {
@@ -96,6 +111,14 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         const val suggestionTextSize = 18
         const val dimBackground = true
         const val suggestionAnimDuration = 250L
+        const val suggestionDebounceDuration = 0L
+        const val suggestionAnimHardwareLayer = false
+        const val suggestionsListHeightChangedPerFrame = true
+        const val savedSuggestionsLimit = 50
+        const val savedSuggestionsMaxBytes = 64 * 1024
+        const val highlightSuggestionMatches = false
+        const val precomputeSuggestionText = false
+        const val suggestionPrefetchCount = 8
         const val searchBarMargin = 0
         const val dismissFocusOnItemSelection = false
     }
@@ -158,7 +181,7 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
                 if (dimBackground) animateBackground(BackgroundAnimation.FADE_IN)
                 binding.querySection.menuView.hideIfRoomItems()
                 transitionInLeftSection(true)
-                context.showSoftKeyboard(binding.querySection.searchBarText)
+                showSoftKeyboard()
                 if (menuOpen)
                     closeMenu(false)
 
@@ -183,8 +206,9 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
                 if (dimBackground) animateBackground(BackgroundAnimation.FADE_OUT)
                 binding.querySection.menuView.showIfRoomItems()
                 transitionOutLeftSection(true)
+                suggestionPipeline.cancel()
                 binding.querySection.clearBtn.visibility = View.GONE
-                context.hostActivity?.closeSoftKeyboard()
+                closeSoftKeyboard()
 
                 with(binding.querySection.searchBarText) {
                     if (isTitleSet) {
@@ -250,9 +274,37 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
             field = value
             suggestionsAdapter?.onBindSuggestionCallback = value
         }
+    /**
+     * Enables diffing of swapped suggestions off the main thread, see [SearchSuggestionsAdapter.diffCallback].
+     */
+    var suggestionsDiffCallback: SearchSuggestionItemCallback? = null
+        set(value) {
+            field = value
+            suggestionsAdapter?.diffCallback = value
+        }
     var suggestionTextSize = 0
     private var isInitialLayout = true
     private var isSuggestionsSectionHeightSet = false
+    private var isSuggestionListFilled = false
+    // whether the dropdown height is to be updated, with an animation or not, after the next layout of the suggestions
+    private var pendingSuggestionSectionHeightUpdate: Boolean? = null
+    // the height of the suggestions shown by the dropdown, -1 before they are first shown
+    private var suggestionListHeight = -1
+    private val suggestionsLayoutManager = SuggestionsLayoutManager(context).apply {
+        onLayoutCompleted = ::onSuggestionsLaidOut
+    }
+
+    /**
+     * Height of every suggestion row, in pixels, or 0 if the rows are measured.
+     *
+     * The dropdown is resized as soon as new suggestions are swapped in, from the number of suggestions and
+     * the row height. Measured rows are assumed to be as high as the last laid out ones until they are laid out.
+     */
+    var suggestionRowHeight: Int
+        get() = suggestionsLayoutManager.rowHeights.getFixed(SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION)
+        set(value) {
+            suggestionsLayoutManager.rowHeights.setFixed(SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION, value)
+        }
     var showMoveUpSuggestion: Boolean = Defaults.showMoveUpSuggestion
         set(value) {
             field = value
@@ -260,6 +312,43 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         }
     private var suggestionAnimDuration: Long = 0
 
+    /**
+     * Number of suggestion rows created while the main thread is idle after this view is attached,
+     * so that showing the suggestions for the first time doesn't inflate them. 0 disables prefetching.
+     */
+    var suggestionPrefetchCount: Int = Defaults.suggestionPrefetchCount
+
+    /**
+     * Pool the suggestion rows are recycled into. Set a pool shared with other [FloatingSearchView]s,
+     * see [SearchSuggestionsAdapter.createViewPool], to reuse their rows instead of inflating new ones.
+     */
+    var suggestionViewPool: RecyclerView.RecycledViewPool
+        get() = binding.suggestionSection.suggestionsList.recycledViewPool
+        set(value) {
+            binding.suggestionSection.suggestionsList.setRecycledViewPool(value)
+            isSuggestionViewPoolShared = true
+        }
+    // a shared pool is sized by its owner
+    private var isSuggestionViewPoolShared = false
+
+    // creates one suggestion row per idle pass until enough of them are pooled
+    private val suggestionPrefetcher = MessageQueue.IdleHandler {
+        val list = binding.suggestionSection.suggestionsList
+        val adapter = suggestionsAdapter ?: return@IdleHandler false
+        val pool = list.recycledViewPool
+        val pooled = pool.getRecycledViewCount(SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION)
+
+        if (list.childCount + pooled >= suggestionPrefetchCount)
+            return@IdleHandler false
+
+        if (!isSuggestionViewPoolShared)
+            pool.setMaxRecycledViews(SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION, max(suggestionPrefetchCount, DEFAULT_MAX_RECYCLED_VIEWS))
+        pool.putRecycledView(adapter.createViewHolder(list, SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION))
+
+        // a full pool drops the row
+        pool.getRecycledViewCount(SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION) > pooled
+    }
+
     var queryText: CharSequence?
         get() = binding.querySection.searchBarText.text.toString()
         set(value) {
@@ -278,8 +367,102 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
     var onMenuItemClickListener: ((item: MenuItem) -> Unit)? = null
     var onClearSearchActionListener: (() -> Unit)? = null
     var onSuggestionsListHeightChanged: ((newHeight: Float) -> Unit)? = null
+
+    /**
+     * Whether [onSuggestionsListHeightChanged] is called on every frame of the dropdown animation,
+     * or only once the animation ends.
+     */
+    var isSuggestionsListHeightChangedPerFrame: Boolean = Defaults.suggestionsListHeightChangedPerFrame
+
+    /**
+     * Whether the dropdown is rendered into a hardware layer while it animates, so that its card and shadow
+     * aren't redrawn on every frame.
+     */
+    var suggestionAnimHardwareLayer: Boolean = Defaults.suggestionAnimHardwareLayer
+
+    /**
+     * Maximum number of suggestions saved with the instance state, or -1 for no limit.
+     *
+     * When no suggestions are saved, only the query is, and the suggestions are looked up again by
+     * [suggestionProvider] or [streamingSuggestionProvider] once the state is restored.
+     */
+    var savedSuggestionsLimit: Int = Defaults.savedSuggestionsLimit
+
+    /**
+     * Maximum size, in bytes, of the suggestions saved with the instance state. The suggestions past it are dropped.
+     */
+    var savedSuggestionsMaxBytes: Int = Defaults.savedSuggestionsMaxBytes
+
+    /**
+     * When set, the suggestions are saved with the instance state as the keys it encodes instead of being parceled.
+     */
+    var suggestionKeyCodec: SuggestionKeyCodec? = null
+
     private var suggestionSecHeightListener: (() -> Unit)? = null
 
+    // its jobs are cancelled when the view is detached
+    private val viewScope = CoroutineScope(SupervisorJob() + Dispatchers.Main.immediate)
+
+    // the pending keyboard show, cancelled by any later keyboard request
+    private var softKeyboardJob: Job? = null
+
+    private val suggestionPipeline = SearchSuggestionPipeline(viewScope, object : SearchSuggestionPipeline.Listener {
+        override fun onSuggestions(
+            query: String,
+            suggestions: List<SearchSuggestion>,
+            highlights: List<IntArray>?,
+            texts: List<PrecomputedTextCompat>?
+        ) {
+            if (isSearchFocused) swapSuggestions(suggestions, true, query, highlights, texts)
+        }
+
+        override fun onMoreSuggestions(
+            query: String,
+            suggestions: List<SearchSuggestion>,
+            highlights: List<IntArray>?,
+            texts: List<PrecomputedTextCompat>?
+        ) {
+            if (isSearchFocused) appendSuggestions(suggestions, query, highlights, texts)
+        }
+    })
+
+    /**
+     * Looks up the suggestions for every query change and swaps them in.
+     *
+     * Lookups are debounced by [suggestionDebounceMillis] and run off the main thread. A lookup still
+     * running when the query changes again is cancelled, so only the latest query's results are shown.
+     */
+    var suggestionProvider: SuggestionProvider?
+        get() = suggestionPipeline.provider
+        set(value) {
+            suggestionPipeline.provider = value
+        }
+
+    /**
+     * Streams the suggestions for every query change, see [streamSuggestions].
+     * Used instead of [suggestionProvider] when set.
+     */
+    var streamingSuggestionProvider: StreamingSuggestionProvider?
+        get() = suggestionPipeline.streamingProvider
+        set(value) {
+            suggestionPipeline.streamingProvider = value
+        }
+
+    var suggestionDebounceMillis: Long
+        get() = suggestionPipeline.debounceMillis
+        set(value) {
+            suggestionPipeline.debounceMillis = value
+        }
+
+    /**
+     * Opt-in cache of the results of [suggestionProvider] and [streamingSuggestionProvider].
+     */
+    var suggestionCache: SuggestionCache?
+        get() = suggestionPipeline.cache
+        set(value) {
+            suggestionPipeline.cache = value
+        }
+
     private var mBackgroundColor by Delegates.notNull<Int>()
     override fun setBackgroundColor(color: Int) {
         mBackgroundColor = color
@@ -353,6 +536,37 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
             suggestionsAdapter?.rightIconColor = color
         }
 
+    /**
+     * Whether the parts of the suggestions matching the query are highlighted with [suggestionHighlightColor].
+     *
+     * Matches of suggestions looked up by [suggestionProvider] or [streamingSuggestionProvider] are
+     * found off the main thread along with them, the others' when they are first shown.
+     */
+    var highlightSuggestionMatches: Boolean
+        get() = suggestionPipeline.highlightMatches
+        set(value) {
+            suggestionPipeline.highlightMatches = value
+
+            if (!value)
+                suggestionsAdapter?.highlightQuery = null
+        }
+
+    var suggestionHighlightColor: Int = -1
+        set(color) {
+            field = color
+            suggestionsAdapter?.highlightColor = color
+        }
+
+    /**
+     * Whether the text layout of the suggestions looked up by [suggestionProvider] or [streamingSuggestionProvider]
+     * is computed off the main thread along with them, so that binding a suggestion doesn't have to measure its body.
+     */
+    var precomputeSuggestionText: Boolean = Defaults.precomputeSuggestionText
+        set(value) {
+            field = value
+            suggestionsAdapter?.precomputeText = value
+        }
+
     //endregion
 
     //region init
@@ -423,8 +637,11 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
 
                     val newQuery = this.text.toString()
 
-                    if (isSearchFocused && query != newQuery)
+                    if (isSearchFocused && query != newQuery) {
                         onQueryChangeListener?.invoke(query, newQuery)
+                        updateSuggestionTextMetrics()
+                        suggestionPipeline.submit(newQuery)
+                    }
 
                     query = newQuery
                 }
@@ -476,27 +693,10 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
 
     private fun setupSuggestionSection() {
         with(binding.suggestionSection.suggestionsList) {
-            layoutManager = LinearLayoutManager(context, LinearLayoutManager.VERTICAL, true)
+            layoutManager = suggestionsLayoutManager
             itemAnimator = null
 
-            addOnItemTouchListener(object : OnItemTouchListenerAdapter() {
-                override fun onInterceptTouchEvent(rv: RecyclerView, e: MotionEvent): Boolean {
-                    GestureDetectorCompat(context, object : GestureDetectorListenerAdapter() {
-                        override fun onScroll(
-                            e1: MotionEvent?,
-                            e2: MotionEvent?,
-                            x: Float,
-                            y: Float
-                        ): Boolean {
-                            context.hostActivity?.closeSoftKeyboard()
-
-                            return false
-                        }
-                    })
-
-                    return false
-                }
-            })
+            addOnScrollListener(KeyboardClosingScrollListener { closeSoftKeyboard() })
 
             suggestionsAdapter = SearchSuggestionsAdapter(
                 context,
@@ -526,6 +726,9 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
                 adapter = suggestionsAdapter
                 textColor = suggestionsTextColor
                 rightIconColor = suggestionsRightIconColor
+                highlightColor = suggestionHighlightColor
+                precomputeText = precomputeSuggestionText
+                diffCallback = suggestionsDiffCallback
             }
 
             binding.suggestionSection.suggestionsList.adapter = suggestionsAdapter
@@ -608,6 +811,34 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
             R.styleable.FloatingSearchView_suggestionAnimDuration,
             Defaults.suggestionAnimDuration.toInt()
         ).toLong()
+        suggestionAnimHardwareLayer = attrs.getBoolean(
+            R.styleable.FloatingSearchView_suggestionAnimHardwareLayer,
+            Defaults.suggestionAnimHardwareLayer
+        )
+        isSuggestionsListHeightChangedPerFrame = attrs.getBoolean(
+            R.styleable.FloatingSearchView_suggestionsListHeightChangedPerFrame,
+            Defaults.suggestionsListHeightChangedPerFrame
+        )
+        suggestionDebounceMillis = attrs.getInt(
+            R.styleable.FloatingSearchView_suggestionDebounceDuration,
+            Defaults.suggestionDebounceDuration.toInt()
+        ).toLong()
+        highlightSuggestionMatches = attrs.getBoolean(
+            R.styleable.FloatingSearchView_highlightSuggestionMatches,
+            Defaults.highlightSuggestionMatches
+        )
+        precomputeSuggestionText = attrs.getBoolean(
+            R.styleable.FloatingSearchView_precomputeSuggestionText,
+            Defaults.precomputeSuggestionText
+        )
+        suggestionPrefetchCount = attrs.getInt(
+            R.styleable.FloatingSearchView_suggestionPrefetchCount,
+            Defaults.suggestionPrefetchCount
+        )
+        suggestionRowHeight = attrs.getDimensionPixelSize(
+            R.styleable.FloatingSearchView_suggestionRowHeight,
+            0
+        )
 
         setBackgroundColor(attrs.getColor(
             R.styleable.FloatingSearchView_backgroundColor,
@@ -663,6 +894,11 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
             R.styleable.FloatingSearchView_suggestionRightIconColor,
             ContextCompat.getColor(context, R.color.dark_gray)
         )
+
+        suggestionHighlightColor = attrs.getColor(
+            R.styleable.FloatingSearchView_suggestionHighlightColor,
+            MaterialColors.getColor(this, R.attr.colorPrimary, suggestionsTextColor)
+        )
     } finally { attrs.recycle() }
     //endregion
     
@@ -700,16 +936,46 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         }
     }
 
+    private fun showSoftKeyboard() {
+        softKeyboardJob?.cancel()
+        softKeyboardJob = viewScope.launch {
+            context.showSoftKeyboardWhenReady(binding.querySection.searchBarText)
+        }
+    }
+
+    private fun closeSoftKeyboard() {
+        softKeyboardJob?.cancel()
+        softKeyboardJob = null
+
+        context.hostActivity?.closeSoftKeyboard()
+    }
+
+    override fun onAttachedToWindow() {
+        super.onAttachedToWindow()
+
+        if (suggestionPrefetchCount > 0 && !isInEditMode)
+            Looper.myQueue().addIdleHandler(suggestionPrefetcher)
+    }
+
     override fun onDetachedFromWindow() {
         super.onDetachedFromWindow()
 
+        Looper.myQueue().removeIdleHandler(suggestionPrefetcher)
+        viewScope.coroutineContext.cancelChildren()
+        softKeyboardJob = null
+
         //remove any ongoing animations to prevent leaks
         //todo investigate if correct
         binding.suggestionSection.suggestionsListContainer.animate().cancel()
+        suggestionPipeline.cancel()
     }
 
     class SavedState : BaseSavedState {
-        var suggestions: List<SearchSuggestion?> = mutableListOf()
+        var suggestions: List<SearchSuggestion> = emptyList()
+        // saved instead of suggestions when a SuggestionKeyCodec is set
+        var suggestionKeys: List<String>? = null
+        // size the suggestions may take in the parcel, not parceled itself
+        var suggestionsMaxBytes = Int.MAX_VALUE
         var isSearchFocused = false
         var query: String? = null
         var queryTextSize = 0
@@ -729,7 +995,7 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         constructor(superState: Parcelable?) : super(superState)
         private constructor(`in`: Parcel) : super(`in`) {
             with(`in`) {
-                readList(suggestions, javaClass.classLoader)
+                readSuggestions(this)
                 isSearchFocused = readInt() != 0
                 query = readString()
                 queryTextSize = readInt()
@@ -755,7 +1021,7 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         override fun writeToParcel(out: Parcel, flags: Int) {
             super.writeToParcel(out, flags)
             with(out) {
-                writeList(suggestions)
+                writeSuggestions(this, flags)
                 writeInt(if (isSearchFocused) 1 else 0)
                 writeString(query)
                 writeInt(queryTextSize)
@@ -774,6 +1040,57 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
             }
         }
 
+        // The suggestions are written until they take suggestionsMaxBytes, followed by their count.
+        private fun writeSuggestions(out: Parcel, flags: Int) {
+            val keys = suggestionKeys
+            val size = keys?.size ?: suggestions.size
+
+            out.writeInt(if (keys != null) 1 else 0)
+            val countPosition = out.dataPosition()
+            out.writeInt(0)
+
+            val start = out.dataPosition()
+            var count = 0
+
+            while (count < size) {
+                val itemStart = out.dataPosition()
+
+                if (keys != null)
+                    out.writeString(keys[count])
+                else
+                    out.writeParcelable(suggestions[count], flags)
+
+                if (out.dataPosition() - start > suggestionsMaxBytes) {
+                    out.setDataSize(itemStart)
+                    break
+                }
+
+                count++
+            }
+
+            val end = out.dataPosition()
+            out.setDataPosition(countPosition)
+            out.writeInt(count)
+            out.setDataPosition(end)
+        }
+
+        private fun readSuggestions(`in`: Parcel) {
+            val isKeys = `in`.readInt() != 0
+            val count = `in`.readInt()
+
+            if (isKeys) {
+                suggestionKeys = List(count) { `in`.readString().orEmpty() }
+                return
+            }
+
+            // Parcel caches the creator of each suggestion class
+            val classLoader = SavedState::class.java.classLoader
+
+            suggestions = List(count) {
+                `in`.readParcelable<SearchSuggestion>(classLoader)!!
+            }
+        }
+
         companion object CREATOR : Parcelable.Creator<SavedState?> {
             override fun createFromParcel(`in`: Parcel): SavedState? {
                 return SavedState(`in`)
@@ -786,7 +1103,16 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
     }
     override fun onSaveInstanceState(): Parcelable? =
         SavedState(super.onSaveInstanceState()).also {
-            it.suggestions = suggestionsAdapter?.searchSuggestions ?: mutableListOf()
+            val suggestions = suggestionsAdapter?.searchSuggestions.orEmpty().let { suggestions ->
+                if (savedSuggestionsLimit in 0 until suggestions.size) suggestions.subList(0, savedSuggestionsLimit) else suggestions
+            }
+            val codec = suggestionKeyCodec
+
+            if (codec != null)
+                it.suggestionKeys = suggestions.map(codec::encode)
+            else
+                it.suggestions = suggestions
+            it.suggestionsMaxBytes = savedSuggestionsMaxBytes
             it.isSearchFocused = isSearchFocused
             it.query = query
             it.suggestionTextSize = suggestionTextSize
@@ -832,8 +1158,17 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
 
             binding.suggestionSection.root.visibility = View.VISIBLE
 
+            val suggestions = state.suggestionKeys?.let { keys ->
+                suggestionKeyCodec?.let { codec -> keys.mapNotNull(codec::decode) }.orEmpty()
+            } ?: state.suggestions
+
             suggestionSecHeightListener = {
-                swapSuggestions(state.suggestions, false)
+                swapSuggestions(suggestions, false)
+                // only the query was saved
+                if (suggestions.isEmpty()) {
+                    updateSuggestionTextMetrics()
+                    suggestionPipeline.submit(query)
+                }
                 suggestionSecHeightListener = null
 
                 //todo refactor move to a better location
@@ -846,7 +1181,7 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
                 View.VISIBLE
             binding.querySection.leftAction.visibility = View.VISIBLE
 
-            context.showSoftKeyboard(binding.querySection.searchBarText)
+            showSoftKeyboard()
         }
     }
     //endregion
@@ -910,6 +1245,21 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         true
     )
 
+    /**
+     * Shows the suggestions streamed by [suggestions] for the current query.
+     *
+     * The first chunk replaces the current suggestions and is shown right away, later chunks
+     * are appended to it. Collection is cancelled when the query changes or the search loses focus.
+     */
+    fun streamSuggestions(suggestions: Flow<List<SearchSuggestion>>) {
+        updateSuggestionTextMetrics()
+        suggestionPipeline.collect(query, suggestions)
+    }
+
+    @JvmName("streamSuggestionItems")
+    fun streamSuggestions(suggestions: Flow<SearchSuggestion>) =
+        streamSuggestions(suggestions.map { listOf(it) })
+
     fun setLeftMenuOpen(isOpen: Boolean) {
         menuOpen = isOpen
         menuBtnDrawable.progress = if (isOpen) 1F else 0F
@@ -1035,110 +1385,180 @@ open class FloatingSearchView @JvmOverloads constructor(context: Context, attrs:
         FADE_IN,
         FADE_OUT
     }
+    // reused across focus changes
+    private val backgroundAnimator: ValueAnimator by lazy {
+        ValueAnimator().apply {
+            addUpdateListener {
+                background.alpha = it.animatedValue as Int
+            }
+            duration = BACKGROUND_FADE_ANIM_DURATION
+        }
+    }
     private fun animateBackground(fadeIn: BackgroundAnimation) {
-        ValueAnimator.ofInt(
-            *when (fadeIn) {
+        with(backgroundAnimator) {
+            cancel()
+            when (fadeIn) {
                 BackgroundAnimation.FADE_IN ->
-                    intArrayOf(
+                    setIntValues(
                         BACKGROUND_DRAWABLE_ALPHA_SEARCH_NOT_FOCUSED,
                         BACKGROUND_DRAWABLE_ALPHA_SEARCH_FOCUSED
                     )
                 BackgroundAnimation.FADE_OUT ->
-                    intArrayOf(
+                    setIntValues(
                         BACKGROUND_DRAWABLE_ALPHA_SEARCH_FOCUSED,
                         BACKGROUND_DRAWABLE_ALPHA_SEARCH_NOT_FOCUSED
                     )
             }
-        ).apply {
-            addUpdateListener {
-                background.alpha = it.animatedValue as Int
-            }
-            duration = BACKGROUND_FADE_ANIM_DURATION
             start()
         }
     }
 
-    //returns the cumulative height that the current suggestion items take up or the given max if the
-    //results is >= max. The max option allows us to avoid doing unnecessary and potentially long calculations.
-    private fun calculateSuggestionItemsHeight(suggestions: List<SearchSuggestion?>, max: Int): Int {
-        var visibleItemsHeight = 0
+    // reused by every dropdown animation, the targets are those of the running one
+    private val suggestionSectionAnimListener = object : ViewPropertyAnimatorListenerAdapter(), ViewPropertyAnimatorUpdateListener {
+        var targetTranslationY = 0F
+        var fullyInvisibleTranslationY = 0F
 
-        return min((0 until min(suggestions.size, binding.suggestionSection.suggestionsList.childCount)).map {
-            (visibleItemsHeight + binding.suggestionSection.suggestionsList.getChildAt(it).height).also { acc ->
-                visibleItemsHeight = acc
-            }
-        }.maxOrNull() ?: 0, max)
+        override fun onAnimationUpdate(view: View) {
+            onSuggestionsListHeightChanged?.invoke(abs(view.translationY - fullyInvisibleTranslationY))
+        }
+
+        override fun onAnimationEnd(view: View) {
+            if (!isSuggestionsListHeightChangedPerFrame)
+                onSuggestionsListHeightChanged?.invoke(abs(targetTranslationY - fullyInvisibleTranslationY))
+        }
+
+        override fun onAnimationCancel(view: View) {
+            view.translationY = targetTranslationY
+        }
     }
 
-    // TODO("WTF IS THIS")
+    // translates the dropdown so that visibleSuggestionHeight of it shows, returns whether the suggestions fill it
     private fun updateSuggestionSectionHeight(
-        newSearchSuggestions: List<SearchSuggestion>,
+        visibleSuggestionHeight: Int,
         withAnim: Boolean
     ): Boolean {
+        val containerHeight = binding.suggestionSection.suggestionsListContainer.height
         val cardTopBottomShadowPadding: Int = binding.querySection.root.radius.toInt()
         val cardRadiusSize: Int = binding.querySection.root.radius.toInt()
 
-        val visibleSuggestionHeight: Int = calculateSuggestionItemsHeight(
-            newSearchSuggestions,
-            binding.suggestionSection.suggestionsListContainer.height
-        )
-        val diff: Int = binding.suggestionSection.suggestionsListContainer.height - visibleSuggestionHeight
+        suggestionListHeight = visibleSuggestionHeight
+
+        val diff: Int = containerHeight - visibleSuggestionHeight
         val addedTranslationYForShadowOffsets =
-            if (diff <= cardTopBottomShadowPadding) -(cardTopBottomShadowPadding - diff) else if (diff < binding.suggestionSection.suggestionsListContainer.height - cardTopBottomShadowPadding) cardRadiusSize else 0
-        val newTranslationY: Float = (-binding.suggestionSection.suggestionsListContainer.height +
-                visibleSuggestionHeight + addedTranslationYForShadowOffsets).toFloat()
+            if (diff <= cardTopBottomShadowPadding) -(cardTopBottomShadowPadding - diff) else if (diff < containerHeight - cardTopBottomShadowPadding) cardRadiusSize else 0
+        val newTranslationY: Float = (-containerHeight + visibleSuggestionHeight + addedTranslationYForShadowOffsets).toFloat()
 
         //todo go over
-        val fullyInvisibleTranslationY: Float =
-            -binding.suggestionSection.suggestionsListContainer.height + cardRadiusSize.toFloat()
+        val fullyInvisibleTranslationY: Float = -containerHeight + cardRadiusSize.toFloat()
 
         binding.suggestionSection.suggestionsListContainer.animate().cancel()
         if (withAnim) {
+            suggestionSectionAnimListener.targetTranslationY = newTranslationY
+            suggestionSectionAnimListener.fullyInvisibleTranslationY = fullyInvisibleTranslationY
+
             ViewCompat.animate(binding.suggestionSection.suggestionsListContainer)
                 .setInterpolator(SUGGEST_ITEM_ADD_ANIM_INTERPOLATOR)
                 .setDuration(suggestionAnimDuration)
                 .translationY(newTranslationY)
-                .setUpdateListener {
-                    onSuggestionsListHeightChanged?.invoke(abs(it.translationY - fullyInvisibleTranslationY))
-                }
-                .setListener(object : ViewPropertyAnimatorListenerAdapter() {
-                    override fun onAnimationCancel(view: View?) {
-                        binding.suggestionSection.suggestionsListContainer.translationY = newTranslationY
-                    }
-                }).start()
+                .setUpdateListener(if (isSuggestionsListHeightChangedPerFrame) suggestionSectionAnimListener else null)
+                .setListener(suggestionSectionAnimListener)
+                .apply { if (suggestionAnimHardwareLayer) withLayer() }
+                .start()
         } else {
             binding.suggestionSection.suggestionsListContainer.translationY = newTranslationY
             onSuggestionsListHeightChanged?.invoke(abs(binding.suggestionSection.suggestionsListContainer.translationY - fullyInvisibleTranslationY))
         }
 
-        return binding.suggestionSection.suggestionsListContainer.height == visibleSuggestionHeight
+        return containerHeight == visibleSuggestionHeight
     }
 
-    private fun swapSuggestions(newSearchSuggestions: List<SearchSuggestion?>, withAnim: Boolean) {
+    private fun swapSuggestions(
+        newSearchSuggestions: List<SearchSuggestion?>,
+        withAnim: Boolean,
+        query: String = this.query,
+        highlights: List<IntArray>? = null,
+        texts: List<PrecomputedTextCompat>? = null
+    ) {
         val suggestions = newSearchSuggestions.filterNotNull()
 
-        with(binding.suggestionSection.suggestionsList) {
-            viewTreeObserver.addOnGlobalLayoutListener(object: ViewTreeObserver.OnGlobalLayoutListener {
-                override fun onGlobalLayout() {
-                    binding.suggestionSection.suggestionsList.removeGlobalLayoutObserver(this)
-                    val isSuggestionItemsFillRecyclerView = updateSuggestionSectionHeight(suggestions, withAnim)
-
-                    (binding.suggestionSection.suggestionsList.layoutManager as LinearLayoutManager).let {
-                        it.reverseLayout = !isSuggestionItemsFillRecyclerView
-                        suggestionsAdapter?.reverseList = !isSuggestionItemsFillRecyclerView
-                    }
-                    binding.suggestionSection.suggestionsList.alpha = 1F
-                }
-            })
-            alpha = 0F
-            adapter = suggestionsAdapter?.also {
-                it.swapData(suggestions)
+        suggestionsAdapter?.let { suggestionsAdapter ->
+            suggestionsAdapter.setPrecomputedTexts(suggestions, texts)
+
+            // the query is applied along with the suggestions, so that the current rows aren't rebound for it first
+            suggestionsAdapter.swapData(suggestions, if (highlightSuggestionMatches) query else null) {
+                val height = suggestionsLayoutManager.rowHeights.listHeight(
+                    suggestions.size,
+                    SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION,
+                    binding.suggestionSection.suggestionsListContainer.height
+                )
+
+                // resize the dropdown right away, and lay the rows out in the right direction from the start
+                if (height >= 0)
+                    setSuggestionListFilled(updateSuggestionSectionHeight(height, withAnim))
+
+                // corrected once laid out if the rows turn out to be higher or lower
+                pendingSuggestionSectionHeightUpdate = withAnim
+                // an unchanged diff doesn't request one
+                binding.suggestionSection.suggestionsList.requestLayout()
             }
+
+            if (highlights != null)
+                suggestionsAdapter.putHighlights(query, suggestions, highlights)
         }
 
         binding.divider.visibility = if (newSearchSuggestions.isNotEmpty()) View.VISIBLE else View.GONE
     }
 
+    private fun appendSuggestions(
+        newSearchSuggestions: List<SearchSuggestion>,
+        query: String,
+        highlights: List<IntArray>?,
+        texts: List<PrecomputedTextCompat>?
+    ) {
+        if (newSearchSuggestions.isEmpty())
+            return
+
+        if (highlights != null)
+            suggestionsAdapter?.putHighlights(query, newSearchSuggestions, highlights)
+        suggestionsAdapter?.putPrecomputedTexts(newSearchSuggestions, texts)
+
+        suggestionsAdapter?.appendData(newSearchSuggestions) {
+            // the dropdown only needs to grow while the suggestions don't fill it yet
+            if (!isSuggestionListFilled)
+                pendingSuggestionSectionHeightUpdate = true
+        }
+
+        binding.divider.visibility = View.VISIBLE
+    }
+
+    // the text layout parameters of the suggestions are only known once a suggestion row is created
+    private fun updateSuggestionTextMetrics() {
+        suggestionPipeline.textMetricsParams =
+            if (precomputeSuggestionText) suggestionsAdapter?.textMetricsParams else null
+    }
+
+    private fun onSuggestionsLaidOut(layoutManager: SuggestionsLayoutManager) {
+        val withAnim = pendingSuggestionSectionHeightUpdate ?: return
+        pendingSuggestionSectionHeightUpdate = null
+
+        val height = min(layoutManager.laidOutHeight(), binding.suggestionSection.suggestionsListContainer.height)
+        if (height == suggestionListHeight)
+            return
+
+        val isFilled = updateSuggestionSectionHeight(height, withAnim)
+
+        // the layout direction can't change during a layout pass
+        if (isFilled != isSuggestionListFilled)
+            binding.suggestionSection.suggestionsList.post { setSuggestionListFilled(isFilled) }
+    }
+
+    private fun setSuggestionListFilled(isFilled: Boolean) {
+        isSuggestionListFilled = isFilled
+
+        (binding.suggestionSection.suggestionsList.layoutManager as LinearLayoutManager).reverseLayout = !isFilled
+        suggestionsAdapter?.reverseList = !isFilled
+    }
+
     private fun openMenuDrawable(drawerArrowDrawable: DrawerArrowDrawable, withAnim: Boolean) {
         if (withAnim) {
             ValueAnimator.ofFloat(0F, 1F).apply {
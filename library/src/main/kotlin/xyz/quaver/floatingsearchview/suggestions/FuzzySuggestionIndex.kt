@@ -0,0 +1,173 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+import java.util.*
+
+private const val DEFAULT_MAX_DISTANCE = 2
+private const val DEFAULT_TIME_BUDGET_NANOS = 4_000_000L
+
+// number of keys scanned between two checks of the time budget
+private const val TIME_CHECK_INTERVAL = 64
+
+/**
+ * Typo-tolerant index over a fixed set of suggestions.
+ *
+ * A suggestion matches a query if some prefix of its key is within [find]'s maximum edit (Levenshtein)
+ * distance of the query, so "grean" finds "green" and "gren" finds "green yellow". Keys are normalized
+ * and sorted once; a lookup walks them in order computing the edit distance matrix row by row and reuses
+ * the rows of the prefix a key shares with the previous one, like a walk down a trie. Once a prefix is
+ * too far from the query for its rows to change the result, the keys sharing it are not scanned.
+ *
+ * @param suggestions suggestions to index
+ * @param key extracts the text a suggestion is matched by
+ */
+class FuzzySuggestionIndex<T : SearchSuggestion> @JvmOverloads constructor(
+    suggestions: Collection<T>,
+    key: (T) -> String = { it.body }
+) {
+
+    private val keys: Array<String>
+    private val items: List<T>
+
+    // length of the prefix each key shares with the previous one
+    private val sharedPrefixLengths: IntArray
+    private val maxKeyLength: Int
+
+    init {
+        val sorted = suggestions.map { PrefixSuggestionIndex.normalize(key(it)) to it }.sortedBy { it.first }
+
+        keys = Array(sorted.size) { sorted[it].first }
+        items = sorted.map { it.second }
+
+        sharedPrefixLengths = IntArray(keys.size) { i ->
+            if (i == 0) 0
+            else {
+                val previous = keys[i - 1]
+                val current = keys[i]
+                var length = 0
+
+                while (length < minOf(previous.length, current.length) && previous[length] == current[length])
+                    length++
+
+                length
+            }
+        }
+
+        maxKeyLength = keys.maxOfOrNull { it.length } ?: 0
+    }
+
+    val size: Int
+        get() = items.size
+
+    /**
+     * Returns up to [limit] suggestions within [maxDistance] edits of [query], closest first.
+     *
+     * The lookup stops once [timeBudgetNanos] has passed and returns the best matches found so far.
+     */
+    @JvmOverloads
+    fun find(
+        query: CharSequence,
+        limit: Int,
+        maxDistance: Int = DEFAULT_MAX_DISTANCE,
+        timeBudgetNanos: Long = DEFAULT_TIME_BUDGET_NANOS
+    ): List<T> {
+        if (limit <= 0 || keys.isEmpty())
+            return emptyList()
+
+        val deadline = System.nanoTime() + timeBudgetNanos
+        val queryLength = query.length
+
+        val normalizedQuery = CharArray(queryLength) { PrefixSuggestionIndex.normalize(query[it]) }
+
+        // rows[i] holds the distances between the first i characters of the current key and every prefix of the query
+        val rows = Array(maxKeyLength + 1) { i -> IntArray(queryLength + 1).also { it[0] = i } }
+        for (j in 0..queryLength) rows[0][j] = j
+
+        // closest distance between a prefix of the first i characters of the current key and the query
+        val prefixDistances = IntArray(maxKeyLength + 1).also { it[0] = queryLength }
+
+        // matches with the farthest one on top, ties broken by key order
+        val matches = PriorityQueue<IntArray>(limit, compareByDescending<IntArray> { it[0] }.thenByDescending { it[1] })
+        var threshold = maxDistance
+
+        var validRows = 0
+
+        // once a row is farther than the threshold from every prefix of the query, the rows below it can
+        // only be farther still, so every key starting with that row's prefix has the same distance
+        var settledRow = -1
+
+        for (k in keys.indices) {
+            if (k % TIME_CHECK_INTERVAL == 0 && k > 0 && System.nanoTime() > deadline)
+                break
+
+            val shared = sharedPrefixLengths[k]
+
+            val distance = if (settledRow in 0..shared)
+                prefixDistances[settledRow]
+            else {
+                settledRow = -1
+
+                val key = keys[k]
+                var i = minOf(validRows, shared)
+
+                while (i < key.length) {
+                    val previous = rows[i]
+                    val row = rows[i + 1]
+                    val c = key[i]
+                    var rowMin = row[0]
+
+                    for (j in 1..queryLength) {
+                        val substitution = previous[j - 1] + if (normalizedQuery[j - 1] == c) 0 else 1
+                        val distance = minOf(substitution, previous[j] + 1, row[j - 1] + 1)
+
+                        row[j] = distance
+                        if (distance < rowMin) rowMin = distance
+                    }
+
+                    i++
+                    prefixDistances[i] = minOf(prefixDistances[i - 1], row[queryLength])
+
+                    if (rowMin > threshold) {
+                        settledRow = i
+                        break
+                    }
+                }
+                validRows = i
+
+                prefixDistances[i]
+            }
+
+            if (distance <= threshold) {
+                matches.add(intArrayOf(distance, k))
+
+                if (matches.size > limit)
+                    matches.poll()
+
+                if (matches.size == limit)
+                    threshold = minOf(threshold, matches.peek()!![0])
+            }
+        }
+
+        return matches.sortedWith(compareBy<IntArray> { it[0] }.thenBy { it[1] }).map { items[it[1]] }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+
+/**
+ * Narrows the candidates of the previous query instead of looking up every query from scratch.
+ *
+ * When the new query extends the previous one, only the previous candidates are checked with
+ * [matches]; otherwise, e.g. after a backspace or an edit in the middle of the query, [lookup] is called.
+ * This requires [matches] to be monotonic: a suggestion matching a query must match every prefix of it,
+ * which holds for prefix and substring matching.
+ *
+ * @param lookup returns all the suggestions matching a query
+ * @param matches returns true if a suggestion matches a query
+ */
+class IncrementalSuggestionFilter<T : SearchSuggestion>(
+    private val lookup: (query: String) -> List<T>,
+    private val matches: (suggestion: T, query: String) -> Boolean
+) {
+
+    private var lastQuery: String? = null
+    private var candidates: List<T> = emptyList()
+
+    /**
+     * Returns the suggestions matching [query].
+     *
+     * @param limit maximum number of suggestions to return, or -1 for no limit
+     */
+    @JvmOverloads
+    @Synchronized
+    fun filter(query: String, limit: Int = -1): List<T> {
+        val lastQuery = lastQuery
+
+        candidates = when {
+            lastQuery == query -> candidates
+            lastQuery != null && query.startsWith(lastQuery) -> candidates.filter { matches(it, query) }
+            else -> lookup(query)
+        }
+        this.lastQuery = query
+
+        return if (limit in 0 until candidates.size) candidates.subList(0, limit) else candidates
+    }
+
+    /**
+     * Forgets the previous candidates, e.g. after the suggestions [lookup] returns have changed.
+     */
+    @Synchronized
+    fun reset() {
+        lastQuery = null
+        candidates = emptyList()
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+
+/**
+ * In-memory prefix index over a fixed set of suggestions.
+ *
+ * Keys are normalized once when the index is built and kept in a sorted array, so a lookup is two
+ * binary searches for the range of keys starting with the prefix. The prefix is normalized character
+ * by character while it is compared, and the result is a view of the matching range, so a lookup
+ * allocates no strings and copies no suggestions.
+ *
+ * Matching is case-insensitive. Suggestions sharing a key are returned in their original order.
+ *
+ * @param suggestions suggestions to index
+ * @param key extracts the text a suggestion is matched by
+ */
+class PrefixSuggestionIndex<T : SearchSuggestion> @JvmOverloads constructor(
+    suggestions: Collection<T>,
+    key: (T) -> String = { it.body }
+) {
+
+    private val keys: Array<String>
+    private val items: List<T>
+
+    init {
+        val sorted = suggestions.map { normalize(key(it)) to it }.sortedBy { it.first }
+
+        keys = Array(sorted.size) { sorted[it].first }
+        items = sorted.map { it.second }
+    }
+
+    val size: Int
+        get() = items.size
+
+    /**
+     * Returns the suggestions whose key starts with [prefix], in key order.
+     *
+     * @param limit maximum number of suggestions to return, or -1 for no limit
+     */
+    @JvmOverloads
+    fun find(prefix: CharSequence, limit: Int = -1): List<T> {
+        val from = lowerBound(prefix)
+        val to = upperBound(prefix, from)
+
+        return items.subList(from, if (limit in 0 until to - from) from + limit else to)
+    }
+
+    // first index whose key is not less than the prefix
+    private fun lowerBound(prefix: CharSequence): Int {
+        var low = 0
+        var high = keys.size
+
+        while (low < high) {
+            val mid = (low + high) ushr 1
+
+            if (comparePrefix(keys[mid], prefix) < 0)
+                low = mid + 1
+            else
+                high = mid
+        }
+
+        return low
+    }
+
+    // first index from [from] whose key is greater than the prefix, i.e. does not start with it
+    private fun upperBound(prefix: CharSequence, from: Int): Int {
+        var low = from
+        var high = keys.size
+
+        while (low < high) {
+            val mid = (low + high) ushr 1
+
+            if (comparePrefix(keys[mid], prefix) <= 0)
+                low = mid + 1
+            else
+                high = mid
+        }
+
+        return low
+    }
+
+    companion object {
+        @JvmStatic
+        fun normalize(c: Char): Char = Character.toLowerCase(c)
+
+        @JvmStatic
+        fun normalize(key: CharSequence): String =
+            StringBuilder(key.length).also { builder ->
+                key.forEach { builder.append(normalize(it)) }
+            }.toString()
+
+        /**
+         * Compares the first [prefix] length characters of a normalized [key] with [prefix].
+         * Returns 0 if [key] starts with [prefix].
+         */
+        internal fun comparePrefix(key: String, prefix: CharSequence): Int {
+            for (i in 0 until minOf(key.length, prefix.length)) {
+                val c = normalize(prefix[i])
+
+                if (key[i] != c)
+                    return key[i] - c
+            }
+
+            return if (key.length < prefix.length) -1 else 0
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import xyz.quaver.floatingsearchview.suggestions.model.BytesKey
+import xyz.quaver.floatingsearchview.suggestions.model.HistorySuggestion
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.*
+import kotlin.math.pow
+
+// record: [int body length][int count, negative for a removal][long time][UTF-8 body]
+private const val RECORD_HEADER_SIZE = 16
+
+private const val DEFAULT_COMPACTION_THRESHOLD = 1024
+private const val DEFAULT_HALF_LIFE_MILLIS = 7 * 24 * 60 * 60 * 1000L
+
+/**
+ * Search history persisted in an append-only file.
+ *
+ * Opening the store maps the file with a [java.nio.MappedByteBuffer] and scans its records without decoding
+ * any query; the queries are decoded lazily by [HistorySuggestion.body]. Adding or removing a query appends
+ * a single record. Once the file holds more than [compactionThreshold] records and at least twice as many
+ * records as entries, it is rewritten with a single record per entry.
+ *
+ * Entries are ranked by a frecency score: the number of times a query was added, halved every
+ * [halfLifeMillis] since it was last added.
+ *
+ * Opening and compacting do file I/O and should be done off the main thread.
+ */
+class SearchHistoryStore private constructor(
+    private val file: File,
+    private val halfLifeMillis: Long,
+    private val compactionThreshold: Int
+) : Closeable {
+
+    private val entries = HashMap<BytesKey, HistorySuggestion>()
+    private var channel: FileChannel? = null
+    private var recordCount = 0
+
+    val size: Int
+        @Synchronized get() = entries.size
+
+    @JvmOverloads
+    @Synchronized
+    fun add(query: String, time: Long = System.currentTimeMillis()) {
+        val key = BytesKey.of(query)
+
+        append(key, 1, time)
+
+        entries[key]?.let {
+            it.count++
+            it.lastUsed = maxOf(it.lastUsed, time)
+        } ?: entries.put(key, HistorySuggestion(key, 1, time, query))
+
+        if (recordCount > compactionThreshold && recordCount >= 2 * entries.size)
+            compact()
+    }
+
+    @Synchronized
+    fun remove(query: String) {
+        val key = BytesKey.of(query)
+
+        if (entries.remove(key) != null)
+            append(key, -1, System.currentTimeMillis())
+    }
+
+    @Synchronized
+    fun clear() {
+        detachEntries()
+        entries.clear()
+        recordCount = 0
+        channel?.truncate(0)
+    }
+
+    @JvmOverloads
+    fun score(entry: HistorySuggestion, now: Long = System.currentTimeMillis()): Double =
+        entry.count * 0.5.pow((now - entry.lastUsed).coerceAtLeast(0).toDouble() / halfLifeMillis)
+
+    /**
+     * Returns the [limit] entries with the highest score, best first. No query is decoded.
+     */
+    @JvmOverloads
+    @Synchronized
+    fun top(limit: Int, now: Long = System.currentTimeMillis()): List<HistorySuggestion> =
+        rank(entries.values, limit, now)
+
+    /**
+     * Returns the [limit] entries starting with [prefix] with the highest score, best first.
+     * This decodes the queries that were not decoded yet.
+     */
+    @JvmOverloads
+    @Synchronized
+    fun find(prefix: String, limit: Int, now: Long = System.currentTimeMillis()): List<HistorySuggestion> =
+        rank(entries.values.filter { it.body.startsWith(prefix, ignoreCase = true) }, limit, now)
+
+    /**
+     * Rewrites the file with a single record per entry.
+     */
+    @Synchronized
+    fun compact() {
+        val compacted = File(file.path + ".compact")
+
+        RandomAccessFile(compacted, "rw").channel.use { channel ->
+            channel.truncate(0)
+            entries.forEach { (key, entry) -> write(channel, key, entry.count, entry.lastUsed) }
+            channel.force(false)
+        }
+
+        detachEntries()
+        channel?.close()
+
+        if (!compacted.renameTo(file)) {
+            compacted.delete()
+            // keep the store usable with the file it had
+            load()
+            throw IOException("Cannot replace $file")
+        }
+
+        load()
+    }
+
+    @Synchronized
+    override fun close() {
+        channel?.close()
+        channel = null
+    }
+
+    // entries already handed out decode their body lazily from the mapped file, which is about to be truncated or replaced
+    private fun detachEntries() =
+        entries.values.forEach { it.detach() }
+
+    private fun rank(candidates: Collection<HistorySuggestion>, limit: Int, now: Long): List<HistorySuggestion> {
+        if (limit <= 0)
+            return emptyList()
+
+        // keeps the best [limit] entries with the worst of them on top
+        val best = PriorityQueue<Pair<Double, HistorySuggestion>>(limit, compareBy { it.first })
+
+        candidates.forEach {
+            val score = score(it, now)
+
+            if (best.size < limit)
+                best.add(score to it)
+            else if (score > best.peek()!!.first) {
+                best.poll()
+                best.add(score to it)
+            }
+        }
+
+        return best.sortedByDescending { it.first }.map { it.second }
+    }
+
+    private fun load() {
+        entries.clear()
+        recordCount = 0
+
+        val channel = RandomAccessFile(file, "rw").channel.also { channel = it }
+        val size = channel.size()
+
+        if (size > Int.MAX_VALUE)
+            throw IOException("$file is too large")
+
+        val buffer = if (size > 0) channel.map(FileChannel.MapMode.READ_ONLY, 0, size) else null
+        var position = 0
+
+        while (buffer != null && position + RECORD_HEADER_SIZE <= size) {
+            val length = buffer.getInt(position)
+            val count = buffer.getInt(position + 4)
+            val time = buffer.getLong(position + 8)
+            val offset = position + RECORD_HEADER_SIZE
+
+            // a record cut short by a crash while it was appended
+            if (length < 0 || offset + length > size)
+                break
+
+            val key = BytesKey(buffer, offset, length)
+
+            if (count < 0)
+                entries.remove(key)
+            else
+                entries[key]?.let {
+                    it.count += count
+                    it.lastUsed = maxOf(it.lastUsed, time)
+                } ?: entries.put(key, HistorySuggestion(key, count, time))
+
+            recordCount++
+            position = offset + length
+        }
+
+        if (position < size)
+            channel.truncate(position.toLong())
+
+        channel.position(position.toLong())
+    }
+
+    private fun append(key: BytesKey, count: Int, time: Long) {
+        write(channel ?: throw IOException("$file is closed"), key, count, time)
+        recordCount++
+    }
+
+    private fun write(channel: FileChannel, key: BytesKey, count: Int, time: Long) {
+        val header = ByteBuffer.allocate(RECORD_HEADER_SIZE)
+            .putInt(key.length)
+            .putInt(count)
+            .putLong(time)
+        header.flip()
+
+        val body = key.buffer.duplicate()
+        body.position(key.offset)
+        body.limit(key.offset + key.length)
+
+        val record = arrayOf(header, body)
+        while (header.hasRemaining() || body.hasRemaining())
+            channel.write(record)
+    }
+
+    companion object {
+        /**
+         * Opens the history stored in [file], creating it if it does not exist.
+         *
+         * @param halfLifeMillis time after which the score of an entry is halved
+         * @param compactionThreshold minimum number of records before the file is compacted
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun open(
+            file: File,
+            halfLifeMillis: Long = DEFAULT_HALF_LIFE_MILLIS,
+            compactionThreshold: Int = DEFAULT_COMPACTION_THRESHOLD
+        ): SearchHistoryStore =
+            SearchHistoryStore(file, halfLifeMillis, compactionThreshold).apply { load() }
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import androidx.core.text.PrecomputedTextCompat
+import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.produce
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+
+typealias SuggestionProvider = suspend (query: String) -> List<SearchSuggestion>
+typealias StreamingSuggestionProvider = (query: String) -> Flow<List<SearchSuggestion>>
+
+/**
+ * Runs a [SuggestionProvider] or a [StreamingSuggestionProvider] for every submitted query.
+ *
+ * Submitting a query cancels the lookup of the previous one, whether it is still waiting for
+ * [debounceMillis] to pass or already running. Results are delivered on the main thread and only
+ * for the latest submitted query; results of a cancelled lookup are discarded.
+ *
+ * Streamed results are delivered as soon as they arrive: the first chunk replaces the current
+ * suggestions and every later chunk is appended to them. Chunks that arrive while the main thread
+ * is busy are delivered together.
+ *
+ * @param scope scope the lookups are launched in, on the main thread. Cancelling it cancels them.
+ */
+class SearchSuggestionPipeline(
+    private val scope: CoroutineScope,
+    private val listener: Listener
+) {
+
+    interface Listener {
+        /**
+         * Called with the first suggestions found for [query]. They replace the current suggestions.
+         *
+         * @param highlights the match ranges of each suggestion if [highlightMatches] is set, null otherwise
+         * @param texts the body of each suggestion laid out with [textMetricsParams] if set, null otherwise
+         */
+        fun onSuggestions(
+            query: String,
+            suggestions: List<SearchSuggestion>,
+            highlights: List<IntArray>?,
+            texts: List<PrecomputedTextCompat>?
+        )
+
+        /**
+         * Called with suggestions streamed for [query] after the first chunk. They are appended to the current suggestions.
+         *
+         * @param highlights the match ranges of each suggestion if [highlightMatches] is set, null otherwise
+         * @param texts the body of each suggestion laid out with [textMetricsParams] if set, null otherwise
+         */
+        fun onMoreSuggestions(
+            query: String,
+            suggestions: List<SearchSuggestion>,
+            highlights: List<IntArray>?,
+            texts: List<PrecomputedTextCompat>?
+        )
+    }
+
+    private var job: Job? = null
+
+    var provider: SuggestionProvider? = null
+        set(value) {
+            field = value
+            cancel()
+        }
+
+    /**
+     * Used instead of [provider] when set.
+     */
+    var streamingProvider: StreamingSuggestionProvider? = null
+        set(value) {
+            field = value
+            cancel()
+        }
+
+    /**
+     * Time to wait for the query to settle before the provider is called.
+     */
+    var debounceMillis: Long = 0
+
+    /**
+     * Dispatcher the provider is called on. Defaults to the worker shared by all pipelines.
+     */
+    var dispatcher: CoroutineDispatcher = SuggestionExecutor.dispatcher
+
+    /**
+     * Caches the results of the providers. Cached queries are delivered right away, without debouncing.
+     */
+    var cache: SuggestionCache? = null
+
+    /**
+     * Whether the ranges matched by the query are searched for on [dispatcher] along with the suggestions.
+     *
+     * @see SuggestionHighlighter.findMatches
+     */
+    var highlightMatches = false
+
+    /**
+     * When set, the suggestion bodies are laid out with these parameters on [dispatcher] along with the suggestions.
+     */
+    var textMetricsParams: PrecomputedTextCompat.Params? = null
+
+    fun submit(query: String) {
+        cache?.get(query)?.let {
+            cancel()
+            listener.onSuggestions(query, it, null, null)
+            return
+        }
+
+        val suggestions = streamingProvider?.invoke(query)
+            ?: provider?.let { provider -> flow { emit(provider(query)) } }
+            ?: return cancel()
+
+        collect(query, suggestions, debounceMillis, cache)
+    }
+
+    /**
+     * Delivers the suggestions streamed by [suggestions] for [query], cancelling any previous lookup.
+     */
+    fun collect(query: String, suggestions: Flow<List<SearchSuggestion>>) =
+        collect(query, suggestions, 0, null)
+
+    private fun collect(
+        query: String,
+        suggestions: Flow<List<SearchSuggestion>>,
+        debounceMillis: Long,
+        cache: SuggestionCache?
+    ) {
+        cancel()
+
+        job = scope.launch {
+            if (debounceMillis > 0)
+                delay(debounceMillis)
+
+            var isFirstChunk = true
+            val collected = if (cache != null) mutableListOf<SearchSuggestion>() else null
+
+            val highlightMatches = highlightMatches
+            val textMetricsParams = textMetricsParams
+
+            suggestions.map { chunk ->
+                Chunk(
+                    chunk,
+                    if (highlightMatches) chunk.map { SuggestionHighlighter.findMatches(it.body, query) } else null,
+                    textMetricsParams?.let { params -> chunk.map { PrecomputedTextCompat.create(it.body, params) } }
+                )
+            }.flowOn(dispatcher).batched().collect { chunk ->
+                // a newer query may have been submitted while switching back to the main thread
+                ensureActive()
+
+                if (isFirstChunk)
+                    listener.onSuggestions(query, chunk.suggestions, chunk.highlights, chunk.texts)
+                else if (chunk.suggestions.isNotEmpty())
+                    listener.onMoreSuggestions(query, chunk.suggestions, chunk.highlights, chunk.texts)
+
+                isFirstChunk = false
+                collected?.addAll(chunk.suggestions)
+            }
+
+            if (isFirstChunk)
+                listener.onSuggestions(query, emptyList(), null, null)
+
+            if (collected != null)
+                cache?.put(query, collected)
+        }
+    }
+
+    fun cancel() {
+        job?.cancel()
+        job = null
+    }
+
+}
+
+private class Chunk(
+    val suggestions: List<SearchSuggestion>,
+    val highlights: List<IntArray>?,
+    val texts: List<PrecomputedTextCompat>?
+)
+
+// Collects upstream concurrently and merges every chunk that is already waiting into a single one.
+@OptIn(ExperimentalCoroutinesApi::class)
+private fun Flow<Chunk>.batched(): Flow<Chunk> = flow {
+    coroutineScope {
+        // unlimited, so that chunks arriving while one is delivered are waiting to be merged
+        val chunks = produce(capacity = Channel.UNLIMITED) { collect { send(it) } }
+
+        for (chunk in chunks) {
+            var next = chunks.tryReceive().getOrNull()
+
+            if (next == null)
+                emit(chunk)
+            else {
+                val suggestions = ArrayList(chunk.suggestions)
+                val highlights = chunk.highlights?.let { ArrayList(it) }
+                val texts = chunk.texts?.let { ArrayList(it) }
+
+                while (next != null) {
+                    suggestions.addAll(next.suggestions)
+                    next.highlights?.let { highlights?.addAll(it) }
+                    next.texts?.let { texts?.addAll(it) }
+                    next = chunks.tryReceive().getOrNull()
+                }
+
+                emit(Chunk(suggestions, highlights, texts))
+            }
+        }
+    }
+}
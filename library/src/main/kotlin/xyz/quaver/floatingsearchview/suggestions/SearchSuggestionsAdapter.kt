@@ -20,13 +20,28 @@
 package xyz.quaver.floatingsearchview.suggestions
 
 import android.content.Context
+import android.content.res.ColorStateList
+import android.text.Spannable
+import android.text.SpannableString
+import android.text.Spanned
+import android.text.style.ForegroundColorSpan
+import android.util.SparseArray
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
+import androidx.core.text.PrecomputedTextCompat
+import androidx.core.widget.ImageViewCompat
+import androidx.core.widget.TextViewCompat
+import androidx.recyclerview.widget.AsyncDifferConfig
+import androidx.recyclerview.widget.AsyncListDiffer
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
 import xyz.quaver.floatingsearchview.databinding.SearchSuggestionItemBinding
 import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
-import xyz.quaver.floatingsearchview.util.setIconColor
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestionItemCallback
+import java.util.EnumSet
+import java.util.IdentityHashMap
 
 typealias OnBindSuggestionCallback = (
     binding: SearchSuggestionItemBinding,
@@ -44,64 +59,396 @@ class SearchSuggestionsAdapter(
         fun onMoveItemToSearchClicked(item: SearchSuggestion?)
     }
 
-    inner class SearchSuggestionViewHolder(val binding: SearchSuggestionItemBinding) : RecyclerView.ViewHolder(binding.root) {
+    /**
+     * Holds a suggestion row. Rows don't belong to a particular adapter, so that adapters sharing a
+     * [RecyclerView.RecycledViewPool] can reuse each other's rows, see [createViewPool].
+     */
+    class SearchSuggestionViewHolder(val binding: SearchSuggestionItemBinding) : RecyclerView.ViewHolder(binding.root) {
         var item: SearchSuggestion? = null
 
+        // the adapter that last bound this holder
+        private var adapter: SearchSuggestionsAdapter? = null
+
+        // the adapter properties last applied to this holder's views, so that a rebind only touches what changed
+        private var isStyleApplied = false
+        private var appliedTextColor = 0
+        private var appliedRightIconColor = 0
+        private var appliedShowRightMoveUpBtn = false
+
         init {
             binding.rightIcon.setOnClickListener {
                 if (adapterPosition != RecyclerView.NO_POSITION)
-                    listener?.onMoveItemToSearchClicked(item)
+                    adapter?.listener?.onMoveItemToSearchClicked(item)
             }
 
             itemView.setOnClickListener {
                 if (adapterPosition != RecyclerView.NO_POSITION)
-                    listener?.onItemSelected(item)
+                    adapter?.listener?.onItemSelected(item)
             }
         }
 
-        fun bind(item: SearchSuggestion, position: Int) {
+        fun bind(adapter: SearchSuggestionsAdapter, item: SearchSuggestion, position: Int) {
+            this.adapter = adapter
             this.item = item
 
-            with (binding.rightIcon) {
-                isEnabled = showRightMoveUpBtn
-                visibility = if (showRightMoveUpBtn) View.VISIBLE else View.INVISIBLE
+            // onBindSuggestionCallback may have changed the style of the previous item
+            val isStyleChanged = adapter.onBindSuggestionCallback != null
+
+            bindRightButton(adapter, isStyleChanged)
+            bindBody(adapter, item)
+            bindTextColor(adapter, isStyleChanged)
+            bindRightIconColor(adapter, isStyleChanged)
+
+            isStyleApplied = true
+
+            adapter.onBindSuggestionCallback?.invoke(binding, item, position)
+        }
+
+        /**
+         * Rebinds only the parts of the bound suggestion's row that [payloads] changed.
+         */
+        fun bind(adapter: SearchSuggestionsAdapter, payloads: Set<Payload>) {
+            val item = item ?: return
+
+            for (payload in payloads)
+                when (payload) {
+                    Payload.TEXT_COLOR -> bindTextColor(adapter, false)
+                    Payload.HIGHLIGHT -> bindBody(adapter, item)
+                    Payload.RIGHT_ICON_COLOR -> bindRightIconColor(adapter, false)
+                    Payload.RIGHT_BUTTON_VISIBILITY -> bindRightButton(adapter, false)
+                }
+        }
+
+        private fun bindRightButton(adapter: SearchSuggestionsAdapter, force: Boolean) {
+            if (force || !isStyleApplied || appliedShowRightMoveUpBtn != adapter.showRightMoveUpBtn) {
+                with (binding.rightIcon) {
+                    isEnabled = adapter.showRightMoveUpBtn
+                    visibility = if (adapter.showRightMoveUpBtn) View.VISIBLE else View.INVISIBLE
+                }
+                appliedShowRightMoveUpBtn = adapter.showRightMoveUpBtn
             }
+        }
 
-            binding.body.text = item.body
+        private fun bindTextColor(adapter: SearchSuggestionsAdapter, force: Boolean) {
+            if (force || !isStyleApplied || appliedTextColor != adapter.textColor) {
+                binding.body.setTextColor(adapter.colorStateListOf(adapter.textColor))
+                appliedTextColor = adapter.textColor
+            }
+        }
 
-            binding.body.setTextColor(textColor)
-            binding.rightIcon.setIconColor(rightIconColor)
+        private fun bindRightIconColor(adapter: SearchSuggestionsAdapter, force: Boolean) {
+            if (force || !isStyleApplied || appliedRightIconColor != adapter.rightIconColor) {
+                ImageViewCompat.setImageTintList(binding.rightIcon, adapter.colorStateListOf(adapter.rightIconColor))
+                appliedRightIconColor = adapter.rightIconColor
+            }
+        }
+
+        private fun bindBody(adapter: SearchSuggestionsAdapter, item: SearchSuggestion) {
+            val text = adapter.precomputedTexts[item]
+
+            if (text != null) {
+                try {
+                    TextViewCompat.setPrecomputedText(binding.body, adapter.highlight(text, item))
+                    return
+                } catch (e: IllegalArgumentException) {
+                    // onBindSuggestionCallback changed the text appearance, lay out the body as usual
+                    adapter.precomputedTexts.clear()
+                }
+            }
 
-            onBindSuggestionCallback?.invoke(binding, item, position)
+            if (adapter.highlightQuery != null)
+                binding.body.text = adapter.highlight(SpannableString(item.body), item)
+            // a row rebound to the same suggestion already shows its body
+            else if (binding.body.text !== item.body)
+                binding.body.text = item.body
         }
 
     }
 
+    /**
+     * Change payloads dispatched when a property of the adapter changes, so that rows are only partially rebound.
+     */
+    enum class Payload {
+        TEXT_COLOR,
+        RIGHT_ICON_COLOR,
+        RIGHT_BUTTON_VISIBILITY,
+        HIGHLIGHT
+    }
+
+    private class HighlightSpan(color: Int) : ForegroundColorSpan(color)
+
+    init {
+        setHasStableIds(true)
+    }
+
+    private fun notifyPropertyChanged(payload: Payload) =
+        notifyItemRangeChanged(0, itemCount, payload)
+
+    private val colorStateLists = SparseArray<ColorStateList>()
+
+    private fun colorStateListOf(color: Int): ColorStateList =
+        colorStateLists[color] ?: ColorStateList.valueOf(color).also {
+            colorStateLists.put(color, it)
+        }
+
+    // match ranges of the bound suggestions for highlightQuery, computed at most once per suggestion
+    private val highlights = IdentityHashMap<SearchSuggestion, IntArray>()
+
+    // spans are immutable and only need to be distinct within a body, so the n-th range of every body shares one
+    private val highlightSpans = ArrayList<HighlightSpan>()
+
+    // bodies laid out ahead of time with textMetricsParams
+    private val precomputedTexts = IdentityHashMap<SearchSuggestion, PrecomputedTextCompat>()
+
+    private var currentHighlightQuery: String? = null
+
+    // the query highlighted by the rows of the committed list, unless they were notified since
+    private var displayedHighlightQuery: String? = null
+
+    // whether the list being diffed is highlighted for another query than the rows it is diffed against
+    @Volatile
+    private var isHighlightChanged = false
+
+    /**
+     * Query whose matches are highlighted in the suggestion bodies, or null to disable highlighting.
+     * Setting it rebinds the highlights of every row, see [swapData] to change it along with the suggestions.
+     *
+     * @see SuggestionHighlighter.findMatches
+     */
+    var highlightQuery: String?
+        get() = currentHighlightQuery
+        set(value) {
+            if (currentHighlightQuery != value) {
+                currentHighlightQuery = value
+                displayedHighlightQuery = value
+                highlights.clear()
+                notifyPropertyChanged(Payload.HIGHLIGHT)
+            }
+        }
+
+    /**
+     * Text color of the highlighted matches.
+     */
+    var highlightColor: Int = -1
+        set(color) {
+            if (field != color) {
+                field = color
+                highlightSpans.clear()
+
+                if (highlightQuery != null)
+                    notifyPropertyChanged(Payload.HIGHLIGHT)
+            }
+        }
+
+    /**
+     * Provides the match ranges of [suggestions] for [query], usually computed off the main thread,
+     * so that they don't have to be searched for when bound. Ignored unless [query] is the [highlightQuery].
+     *
+     * @param ranges the ranges of each suggestion, as returned by [SuggestionHighlighter.findMatches]
+     */
+    fun putHighlights(query: String, suggestions: List<SearchSuggestion>, ranges: List<IntArray>) {
+        if (query != highlightQuery)
+            return
+
+        for (i in suggestions.indices)
+            highlights[suggestions[i]] = ranges[i]
+    }
+
+    /**
+     * Whether the suggestion bodies are bound as text laid out ahead of time, see [setPrecomputedTexts].
+     * Bodies that were not laid out ahead of time are laid out when bound, as usual.
+     */
+    var precomputeText = false
+        set(value) {
+            field = value
+
+            if (!value)
+                precomputedTexts.clear()
+        }
+
+    /**
+     * Text layout parameters of the suggestion bodies, known once the first row is created.
+     * Texts precomputed with other parameters are ignored.
+     */
+    var textMetricsParams: PrecomputedTextCompat.Params? = null
+        private set
+
+    /**
+     * Replaces the bodies laid out ahead of time, usually off the main thread with [textMetricsParams],
+     * with the ones of [suggestions]. Only clears them unless [precomputeText] is set and [texts] holds
+     * the body of each suggestion.
+     */
+    fun setPrecomputedTexts(suggestions: List<SearchSuggestion>, texts: List<PrecomputedTextCompat>?) {
+        precomputedTexts.clear()
+        putPrecomputedTexts(suggestions, texts)
+    }
+
+    /**
+     * Adds the bodies of [suggestions] laid out ahead of time, see [setPrecomputedTexts].
+     * Ignored unless [texts] holds the body of each suggestion.
+     */
+    fun putPrecomputedTexts(suggestions: List<SearchSuggestion>, texts: List<PrecomputedTextCompat>?) {
+        if (!precomputeText || texts == null || texts.size != suggestions.size)
+            return
+
+        for (i in suggestions.indices)
+            if (texts[i].params == textMetricsParams)
+                precomputedTexts[suggestions[i]] = texts[i]
+    }
+
+    // text holds the body of item
+    private fun <T : Spannable> highlight(text: T, item: SearchSuggestion): T {
+        // precomputed texts are reused across binds
+        if (text is PrecomputedTextCompat)
+            for (span in text.getSpans(0, text.length, HighlightSpan::class.java))
+                text.removeSpan(span)
+
+        val query = highlightQuery ?: return text
+        val ranges = highlights.getOrPut(item) { SuggestionHighlighter.findMatches(item.body, query) }
+
+        for (i in 0 until ranges.size / 2) {
+            if (i == highlightSpans.size)
+                highlightSpans.add(HighlightSpan(highlightColor))
+
+            text.setSpan(highlightSpans[i], ranges[2 * i], ranges[2 * i + 1], Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
+        }
+
+        return text
+    }
+
     var showRightMoveUpBtn = false
         set(value) {
             field.let {
                 field = value
 
                 if (it != value)
-                    notifyDataSetChanged()
+                    notifyPropertyChanged(Payload.RIGHT_BUTTON_VISIBILITY)
             }
         }
 
-    val searchSuggestions = mutableListOf<SearchSuggestion>()
+    /**
+     * Comparator used to diff consecutive [swapData] calls.
+     *
+     * When set, the difference between the current and the new list is computed on a background
+     * thread and only the resulting inserts, removes, moves and changes are dispatched to the
+     * adapter. A diff that is still running when a newer list is swapped in is dropped.
+     * When null, [swapData] replaces the whole list synchronously.
+     *
+     * The rows' stable ids come from [SearchSuggestionItemCallback.getItemId], which must agree with
+     * [SearchSuggestionItemCallback.areItemsTheSame]: override both together.
+     */
+    var diffCallback: SearchSuggestionItemCallback? = null
+        set(value) {
+            field = value
+
+            updateItemIds(differ.currentList)
+            if (itemCount > 0)
+                notifyDataSetChanged()
+        }
+
+    val isDiffEnabled: Boolean
+        get() = diffCallback != null
+
+    // Positions dispatched by the differ are in list order; mirror them when the list is reversed.
+    // displayedCount tracks the item count the RecyclerView currently knows about while updates are dispatched.
+    private val updateCallback = object : ListUpdateCallback {
+        var displayedCount = 0
+        // set while a list is replaced without diffing, which is dispatched as a single data set change
+        var isSuppressed = false
+
+        override fun onInserted(position: Int, count: Int) {
+            if (isSuppressed) return
+
+            notifyItemRangeInserted(if (reverseList) displayedCount - position else position, count)
+            displayedCount += count
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+            if (isSuppressed) return
+
+            notifyItemRangeRemoved(if (reverseList) displayedCount - position - count else position, count)
+            displayedCount -= count
+        }
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) {
+            if (reverseList)
+                notifyItemMoved(displayedCount - fromPosition - 1, displayedCount - toPosition - 1)
+            else
+                notifyItemMoved(fromPosition, toPosition)
+        }
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) {
+            notifyItemRangeChanged(if (reverseList) displayedCount - position - count else position, count, payload)
+        }
+    }
+
+    private val defaultCallback = SearchSuggestionItemCallback()
+
+    private val differ = AsyncListDiffer(
+        updateCallback,
+        AsyncDifferConfig.Builder(object : DiffUtil.ItemCallback<SearchSuggestion>() {
+            override fun areItemsTheSame(oldItem: SearchSuggestion, newItem: SearchSuggestion): Boolean =
+                (diffCallback ?: defaultCallback).areItemsTheSame(oldItem, newItem)
+
+            override fun areContentsTheSame(oldItem: SearchSuggestion, newItem: SearchSuggestion): Boolean =
+                !isHighlightChanged && (diffCallback ?: defaultCallback).areContentsTheSame(oldItem, newItem)
+
+            // rows kept by the diff only need their highlights rebound for the new query
+            override fun getChangePayload(oldItem: SearchSuggestion, newItem: SearchSuggestion): Any? =
+                if (isHighlightChanged && (diffCallback ?: defaultCallback).areContentsTheSame(oldItem, newItem))
+                    Payload.HIGHLIGHT
+                else
+                    (diffCallback ?: defaultCallback).getChangePayload(oldItem, newItem)
+        }).build()
+    ).apply {
+        addListListener { _, list -> updateItemIds(list) }
+    }
+
+    // stable ids of the committed list, by list position
+    private var itemIds = LongArray(0)
+
+    // suggestions sharing an id, e.g. the same body, get distinct ones derived from it in list order
+    private fun updateItemIds(list: List<SearchSuggestion>) {
+        val callback = diffCallback ?: defaultCallback
+        val ids = if (itemIds.size == list.size) itemIds else LongArray(list.size)
+        val seen = HashSet<Long>(list.size * 2)
+
+        for (i in list.indices) {
+            var id = callback.getItemId(list[i])
+
+            while (id == RecyclerView.NO_ID || !seen.add(id))
+                id = (id xor DUPLICATE_ID_SALT) * DUPLICATE_ID_PRIME
+
+            ids[i] = id
+        }
+
+        itemIds = ids
+    }
+
+    val searchSuggestions: List<SearchSuggestion>
+        get() = differ.currentList
+
+    // the list last passed to the differ, which may still be diffing against currentList
+    private var submittedList: List<SearchSuggestion> = emptyList()
+
+    // the commit callback of submittedList until it is committed
+    private var uncommittedCallback: Runnable? = null
+
     var onBindSuggestionCallback: OnBindSuggestionCallback? = null
 
     var reverseList = true
         set(value) {
-            field = value
-
-            notifyDataSetChanged()
+            if (field != value) {
+                field = value
+                notifyDataSetChanged()
+            }
         }
 
     var textColor: Int = -1
         set(color) {
             if (field != color) {
                 field = color
-                notifyDataSetChanged()
+                notifyPropertyChanged(Payload.TEXT_COLOR)
             }
         }
 
@@ -109,15 +456,102 @@ class SearchSuggestionsAdapter(
         set(color) {
             if (field != color) {
                 field = color
-                notifyDataSetChanged()
+                notifyPropertyChanged(Payload.RIGHT_ICON_COLOR)
             }
         }
 
-    fun swapData(searchSuggestions: List<SearchSuggestion>) {
-        this.searchSuggestions.clear()
-        this.searchSuggestions.addAll(searchSuggestions)
+    /**
+     * Replaces the suggestions shown by this adapter.
+     *
+     * @param searchSuggestions the new suggestions. The list must not be modified afterwards.
+     * @param commitCallback called once the new list is committed to the adapter. When diffing,
+     *                       this happens asynchronously and is skipped if a newer list is swapped in first.
+     */
+    @JvmOverloads
+    fun swapData(searchSuggestions: List<SearchSuggestion>, commitCallback: Runnable? = null) =
+        swapData(searchSuggestions, highlightQuery, commitCallback)
 
+    /**
+     * Replaces the suggestions shown by this adapter and the [highlightQuery] at once, so that each row is
+     * rebound once for both. The rows that are kept only have their highlights rebound.
+     *
+     * @see swapData
+     */
+    fun swapData(searchSuggestions: List<SearchSuggestion>, highlightQuery: String?, commitCallback: Runnable?) {
+        submittedList = searchSuggestions
+
+        if (currentHighlightQuery != highlightQuery) {
+            currentHighlightQuery = highlightQuery
+            highlights.clear()
+        }
+
+        if (isDiffEnabled) {
+            submit(searchSuggestions, commitCallback)
+            return
+        }
+
+        // submitting to an empty differ commits synchronously; with stable ids, the rows are rebound in place
+        updateCallback.isSuppressed = true
+        differ.submitList(null)
+        differ.submitList(searchSuggestions)
+        updateCallback.isSuppressed = false
+
+        updateCallback.displayedCount = searchSuggestions.size
+        uncommittedCallback = null
+        displayedHighlightQuery = highlightQuery
         notifyDataSetChanged()
+        commitCallback?.run()
+    }
+
+    /**
+     * Appends suggestions to the ones shown by this adapter, dispatching only their insertion.
+     *
+     * @param commitCallback called once the suggestions are committed to the adapter, see [swapData].
+     *                       The commit callback of suggestions swapped in before that are not committed
+     *                       yet is called first, since they are committed along with these.
+     */
+    @JvmOverloads
+    fun appendData(searchSuggestions: List<SearchSuggestion>, commitCallback: Runnable? = null) {
+        // a list swapped in just before may not be committed yet
+        val current = submittedList
+
+        if (searchSuggestions.isEmpty()) {
+            commitCallback?.run()
+            return
+        }
+
+        // the differ drops the callback of a list once a newer one is submitted
+        val callback = uncommittedCallback?.let { pending ->
+            Runnable {
+                pending.run()
+                commitCallback?.run()
+            }
+        } ?: commitCallback
+
+        if (current.isEmpty()) {
+            swapData(searchSuggestions, callback)
+            return
+        }
+
+        submittedList = ArrayList<SearchSuggestion>(current.size + searchSuggestions.size).apply {
+            addAll(current)
+            addAll(searchSuggestions)
+        }
+        submit(submittedList, callback)
+    }
+
+    private fun submit(searchSuggestions: List<SearchSuggestion>, commitCallback: Runnable?) {
+        val highlightQuery = currentHighlightQuery
+
+        // only the latest submitted list is committed, so the flag always matches the diff that lands
+        isHighlightChanged = highlightQuery != displayedHighlightQuery
+        uncommittedCallback = commitCallback
+
+        differ.submitList(searchSuggestions) {
+            uncommittedCallback = null
+            displayedHighlightQuery = highlightQuery
+            commitCallback?.run()
+        }
     }
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): SearchSuggestionsAdapter.SearchSuggestionViewHolder {
@@ -127,12 +561,60 @@ class SearchSuggestionsAdapter(
                     parent.context
                 ), parent, false
             )
-        )
+        ).also {
+            if (textMetricsParams == null)
+                textMetricsParams = TextViewCompat.getTextMetricsParams(it.binding.body)
+        }
     }
 
+    private fun getSuggestion(position: Int) =
+        searchSuggestions[if (reverseList) searchSuggestions.size - position - 1 else position]
+
     override fun onBindViewHolder(holder: SearchSuggestionsAdapter.SearchSuggestionViewHolder, position: Int) {
-        holder.bind(searchSuggestions[if (reverseList) searchSuggestions.size - position - 1 else position], position)
+        // rows created by another adapter sharing the pool
+        if (textMetricsParams == null)
+            textMetricsParams = TextViewCompat.getTextMetricsParams(holder.binding.body)
+
+        holder.bind(this, getSuggestion(position), position)
     }
 
+    override fun onBindViewHolder(holder: SearchSuggestionViewHolder, position: Int, payloads: MutableList<Any>) {
+        val item = getSuggestion(position)
+
+        // payloads of diffCallback, a row bound to another item, or a style onBindSuggestionCallback may depend on
+        if (payloads.isEmpty() || holder.item !== item || onBindSuggestionCallback != null || payloads.any { it !is Payload }) {
+            onBindViewHolder(holder, position)
+            return
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        holder.bind(this, EnumSet.copyOf(payloads as List<Payload>))
+    }
+
+    override fun getItemId(position: Int): Long =
+        itemIds[if (reverseList) itemIds.size - position - 1 else position]
+
     override fun getItemCount(): Int = searchSuggestions.size
+
+    companion object {
+        private const val DUPLICATE_ID_SALT = 0x5bd1e995L
+        private const val DUPLICATE_ID_PRIME = 0x100000001b3L
+
+        /**
+         * The view type of the suggestion rows.
+         */
+        const val VIEW_TYPE_SUGGESTION = 0
+
+        /**
+         * Creates a pool that can be shared by several [FloatingSearchView][xyz.quaver.floatingsearchview.FloatingSearchView]s,
+         * so that suggestion rows created for one of them are reused by the others.
+         *
+         * @param maxSuggestionRows number of unused suggestion rows kept by the pool
+         */
+        @JvmStatic
+        fun createViewPool(maxSuggestionRows: Int): RecyclerView.RecycledViewPool =
+            RecyclerView.RecycledViewPool().apply {
+                setMaxRecycledViews(VIEW_TYPE_SUGGESTION, maxSuggestionRows)
+            }
+    }
 }
\ No newline at end of file
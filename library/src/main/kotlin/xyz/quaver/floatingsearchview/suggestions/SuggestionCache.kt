@@ -0,0 +1,149 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.os.SystemClock
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+
+typealias SuggestionWeigher = (query: String, suggestions: List<SearchSuggestion>) -> Long
+
+/**
+ * Least recently used cache of suggestion lookups.
+ *
+ * Queries are normalized with [normalize] before they are used as keys, so e.g. "Gre" and "gre " can share an entry.
+ * The cache is bounded by the total weight of its entries as given by [weigher]: by default every entry
+ * weighs 1 so [maxWeight] is a number of entries, [ESTIMATED_SIZE_WEIGHER] bounds it by estimated bytes instead.
+ * Entries older than [ttlMillis] are treated as missing, which is useful for remote sources.
+ *
+ * @param maxWeight maximum total weight of the cached entries
+ * @param ttlMillis time an entry stays valid for, or -1 to keep entries until they are evicted
+ */
+class SuggestionCache @JvmOverloads constructor(
+    private val maxWeight: Long,
+    private val weigher: SuggestionWeigher = ENTRY_WEIGHER,
+    private val ttlMillis: Long = -1,
+    private val normalize: (query: String) -> String = { it.trim().lowercase() }
+) {
+
+    private class Entry(val suggestions: List<SearchSuggestion>, val weight: Long, val createdAt: Long)
+
+    private val entries = LinkedHashMap<String, Entry>(16, 0.75F, true)
+
+    var weight: Long = 0
+        @Synchronized get
+        private set
+
+    var hitCount: Long = 0
+        @Synchronized get
+        private set
+    var missCount: Long = 0
+        @Synchronized get
+        private set
+    var evictionCount: Long = 0
+        @Synchronized get
+        private set
+
+    val size: Int
+        @Synchronized get() = entries.size
+
+    @Synchronized
+    operator fun get(query: String): List<SearchSuggestion>? {
+        val key = normalize(query)
+        val entry = entries[key]
+
+        if (entry != null && isExpired(entry)) {
+            remove(key)
+        } else if (entry != null) {
+            hitCount++
+            return entry.suggestions
+        }
+
+        missCount++
+        return null
+    }
+
+    @Synchronized
+    fun put(query: String, suggestions: List<SearchSuggestion>) {
+        val key = normalize(query)
+        val entryWeight = weigher(key, suggestions)
+
+        remove(key)
+
+        if (entryWeight > maxWeight)
+            return
+
+        entries[key] = Entry(suggestions, entryWeight, SystemClock.elapsedRealtime())
+        weight += entryWeight
+
+        val iterator = entries.values.iterator()
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().weight
+            iterator.remove()
+            evictionCount++
+        }
+    }
+
+    @Synchronized
+    fun invalidate() {
+        entries.clear()
+        weight = 0
+    }
+
+    @Synchronized
+    fun resetStats() {
+        hitCount = 0
+        missCount = 0
+        evictionCount = 0
+    }
+
+    /**
+     * Wraps [provider] so that its results are served from and stored in this cache.
+     */
+    fun cached(provider: SuggestionProvider): SuggestionProvider = { query ->
+        get(query) ?: provider(query).also { put(query, it) }
+    }
+
+    private fun remove(key: String) {
+        entries.remove(key)?.let { weight -= it.weight }
+    }
+
+    private fun isExpired(entry: Entry) =
+        ttlMillis >= 0 && SystemClock.elapsedRealtime() - entry.createdAt > ttlMillis
+
+    companion object {
+        @JvmField
+        val ENTRY_WEIGHER: SuggestionWeigher = { _, _ -> 1 }
+
+        /**
+         * Roughly estimates the bytes retained by an entry from the length of its query and suggestion bodies.
+         */
+        @JvmField
+        val ESTIMATED_SIZE_WEIGHER: SuggestionWeigher = { query, suggestions ->
+            var size = 64L + 2 * query.length
+
+            suggestions.forEach {
+                size += 48 + 2 * it.body.length
+            }
+
+            size
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.asCoroutineDispatcher
+import java.util.concurrent.Callable
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+private const val TAG = "SuggestionExecutor"
+
+private const val WORKER_KEEP_ALIVE_SECONDS = 30L
+
+/**
+ * Single background worker shared by every [xyz.quaver.floatingsearchview.FloatingSearchView] to look up suggestions.
+ *
+ * The worker thread is started on demand and stops after being idle for a while. [dispatcher] runs the
+ * providers of [SearchSuggestionPipeline]; [submit] offers the same worker to callback based code.
+ */
+object SuggestionExecutor {
+
+    fun interface Callback<T> {
+        fun onResult(result: T)
+    }
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    private val executor = ThreadPoolExecutor(
+        0, 1,
+        WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        LinkedBlockingQueue(),
+        ThreadFactory { runnable ->
+            Thread(runnable, "FloatingSearchView-suggestions").apply { isDaemon = true }
+        }
+    )
+
+    @JvmStatic
+    val dispatcher: CoroutineDispatcher = executor.asCoroutineDispatcher()
+
+    // latest request submitted with each token
+    private val latestRequests = HashMap<Any, Request<*>>()
+
+    private class Request<T>(
+        val token: Any,
+        val task: Callable<T>,
+        val callback: Callback<T>?
+    ) : Runnable {
+        @Volatile
+        var isCancelled = false
+
+        override fun run() {
+            if (isCancelled)
+                return
+
+            // a failing task must not take the worker shared by every search view down with it
+            val result = try {
+                task.call()
+            } catch (e: Exception) {
+                Log.e(TAG, "Suggestion task failed", e)
+
+                synchronized(latestRequests) {
+                    if (latestRequests[token] === this)
+                        latestRequests.remove(token)
+                }
+                return
+            }
+
+            mainHandler.post {
+                if (isCancelled)
+                    return@post
+
+                synchronized(latestRequests) {
+                    if (latestRequests[token] === this)
+                        latestRequests.remove(token)
+                }
+
+                callback?.onResult(result)
+            }
+        }
+    }
+
+    /**
+     * Runs [task] on the shared worker and delivers its result to [callback] on the main thread.
+     *
+     * Submitting a task cancels the previous task submitted with the same [token]: if it did not start yet it
+     * is skipped, otherwise its result is dropped. Only the newest task of a token runs while the worker is busy.
+     * If [task] throws, the exception is logged and [callback] is not called.
+     * Must be called on the main thread.
+     */
+    @JvmStatic
+    fun <T> submit(token: Any, task: Callable<T>, callback: Callback<T>?) {
+        val request = Request(token, task, callback)
+
+        synchronized(latestRequests) {
+            latestRequests.put(token, request)?.isCancelled = true
+        }
+
+        executor.execute(request)
+    }
+
+    /**
+     * Cancels the task submitted with [token], if any. Must be called on the main thread.
+     */
+    @JvmStatic
+    fun cancel(token: Any) {
+        synchronized(latestRequests) {
+            latestRequests.remove(token)?.isCancelled = true
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+/**
+ * Finds the ranges of a suggestion body matched by a query, to be highlighted when the suggestion is bound.
+ *
+ * Every whitespace separated term of the query is matched case-insensitively wherever it occurs in the body.
+ * No regular expression is compiled and no string is allocated.
+ */
+object SuggestionHighlighter {
+
+    @JvmField
+    val NO_MATCHES = IntArray(0)
+
+    /**
+     * Returns the matched ranges of [text] as consecutive start (inclusive) and end (exclusive) offsets,
+     * sorted and without overlaps, or [NO_MATCHES].
+     */
+    @JvmStatic
+    fun findMatches(text: CharSequence, query: CharSequence): IntArray {
+        var ranges = NO_MATCHES
+        var size = 0
+
+        var termStart = 0
+        while (termStart < query.length) {
+            if (Character.isWhitespace(query[termStart])) {
+                termStart++
+                continue
+            }
+
+            var termEnd = termStart
+            while (termEnd < query.length && !Character.isWhitespace(query[termEnd]))
+                termEnd++
+
+            val termLength = termEnd - termStart
+            var i = 0
+            while (i + termLength <= text.length) {
+                if (regionMatches(text, i, query, termStart, termLength)) {
+                    if (size + 2 > ranges.size)
+                        ranges = ranges.copyOf(maxOf(8, ranges.size * 2))
+
+                    ranges[size++] = i
+                    ranges[size++] = i + termLength
+                    i += termLength
+                } else
+                    i++
+            }
+
+            termStart = termEnd
+        }
+
+        return if (size == 0) NO_MATCHES else merge(ranges, size)
+    }
+
+    private fun regionMatches(text: CharSequence, offset: Int, query: CharSequence, queryOffset: Int, length: Int): Boolean {
+        for (i in 0 until length) {
+            val a = text[offset + i]
+            val b = query[queryOffset + i]
+
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b) && Character.toLowerCase(a) != Character.toLowerCase(b))
+                return false
+        }
+
+        return true
+    }
+
+    // sorts the ranges by their start and merges the overlapping ones
+    private fun merge(ranges: IntArray, size: Int): IntArray {
+        val count = size / 2
+
+        // insertion sort, there are only a handful of ranges
+        for (i in 1 until count) {
+            val start = ranges[2 * i]
+            val end = ranges[2 * i + 1]
+            var j = i - 1
+
+            while (j >= 0 && ranges[2 * j] > start) {
+                ranges[2 * j + 2] = ranges[2 * j]
+                ranges[2 * j + 3] = ranges[2 * j + 1]
+                j--
+            }
+
+            ranges[2 * j + 2] = start
+            ranges[2 * j + 3] = end
+        }
+
+        var merged = 0
+        for (i in 0 until count) {
+            val start = ranges[2 * i]
+            val end = ranges[2 * i + 1]
+
+            if (merged > 0 && start <= ranges[merged - 1])
+                ranges[merged - 1] = maxOf(ranges[merged - 1], end)
+            else {
+                ranges[merged++] = start
+                ranges[merged++] = end
+            }
+        }
+
+        return ranges.copyOf(merged)
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import kotlinx.coroutines.*
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+import xyz.quaver.floatingsearchview.suggestions.model.SuggestionSource
+
+/**
+ * Merges the suggestions of several [SuggestionSource]s into one list.
+ *
+ * All sources are queried concurrently and each one is given [SuggestionSource.deadlineMillis] to answer.
+ * A source that misses its deadline or fails is left out, so a single slow source cannot hold back
+ * the others. Suggestions are ranked by [SuggestionSource.priority], keeping the order of each source,
+ * and deduplicated by [SearchSuggestion.body] in favour of the higher priority source.
+ *
+ * [query] can be used as a [SuggestionProvider].
+ *
+ * @param dispatcher dispatcher the sources are queried on
+ * @param limit maximum number of merged suggestions, or -1 for no limit
+ */
+class SuggestionMerger @JvmOverloads constructor(
+    sources: List<SuggestionSource>,
+    dispatcher: CoroutineDispatcher = Dispatchers.Default,
+    private val limit: Int = -1
+) {
+
+    private val sources = sources.sortedByDescending { it.priority }
+
+    // Lookups run outside of the caller's scope so that the merge can return at the deadline
+    // even when a source does not cooperate with cancellation.
+    private val lookupScope = CoroutineScope(SupervisorJob() + dispatcher)
+
+    suspend fun query(query: String): List<SearchSuggestion> = coroutineScope {
+        val lookups = sources.map { source ->
+            lookupScope.async { source.suggest(query) }
+        }
+
+        val results = try {
+            lookups.mapIndexed { i, lookup ->
+                async {
+                    try {
+                        withTimeoutOrNull(sources[i].deadlineMillis) { lookup.await() }
+                    } catch (e: CancellationException) {
+                        ensureActive()
+                        null
+                    } catch (e: Exception) {
+                        null
+                    }
+                }
+            }.awaitAll()
+        } finally {
+            lookups.forEach { it.cancel() }
+        }
+
+        merge(results)
+    }
+
+    private fun merge(results: List<List<SearchSuggestion>?>): List<SearchSuggestion> {
+        val merged = mutableListOf<SearchSuggestion>()
+        val bodies = HashSet<String>()
+
+        results.forEach { suggestions ->
+            suggestions?.forEach {
+                if (limit in 0..merged.size)
+                    return merged
+
+                if (bodies.add(it.body))
+                    merged.add(it)
+            }
+        }
+
+        return merged
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.util.SparseIntArray
+import kotlin.math.min
+
+/**
+ * Heights of the suggestion rows per view type, either declared up front or measured from the last layout,
+ * so that the height of a list of suggestions is known before it is laid out.
+ */
+internal class SuggestionRowHeights {
+
+    private val fixedHeights = SparseIntArray()
+    private val measuredHeights = SparseIntArray()
+
+    /**
+     * Declares that every row of [viewType] is [height] pixels high, or clears the declaration if [height] is 0.
+     */
+    fun setFixed(viewType: Int, height: Int) {
+        if (height > 0)
+            fixedHeights.put(viewType, height)
+        else
+            fixedHeights.delete(viewType)
+    }
+
+    fun getFixed(viewType: Int): Int = fixedHeights.get(viewType)
+
+    fun onMeasured(viewType: Int, height: Int) {
+        if (height > 0)
+            measuredHeights.put(viewType, height)
+    }
+
+    /**
+     * Returns the height of a row of [viewType], or 0 if it is not known yet.
+     */
+    operator fun get(viewType: Int): Int =
+        fixedHeights.get(viewType).takeIf { it > 0 } ?: measuredHeights.get(viewType)
+
+    /**
+     * Returns the height of [rowCount] rows of [viewType] capped at [max], or -1 if the row height is not known yet.
+     */
+    fun listHeight(rowCount: Int, viewType: Int, max: Int): Int {
+        val height = get(viewType)
+
+        return if (height > 0) min(rowCount.toLong() * height, max.toLong()).toInt() else -1
+    }
+
+}
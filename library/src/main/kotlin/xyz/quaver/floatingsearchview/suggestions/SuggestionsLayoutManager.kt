@@ -0,0 +1,55 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.content.Context
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * Lays out the suggestion rows and reports every completed layout pass, so that the dropdown can be
+ * resized from the rows just laid out instead of waiting for the next global layout.
+ */
+internal class SuggestionsLayoutManager(context: Context) : LinearLayoutManager(context, VERTICAL, true) {
+
+    var onLayoutCompleted: ((layoutManager: SuggestionsLayoutManager) -> Unit)? = null
+
+    val rowHeights = SuggestionRowHeights()
+
+    override fun onLayoutCompleted(state: RecyclerView.State?) {
+        super.onLayoutCompleted(state)
+
+        if (childCount > 0)
+            getChildAt(0)?.let { rowHeights.onMeasured(getItemViewType(it), laidOutHeight() / childCount) }
+
+        onLayoutCompleted?.invoke(this)
+    }
+
+    /**
+     * Returns the height spanned by the laid out rows, from the outermost two of them.
+     */
+    fun laidOutHeight(): Int {
+        val first = getChildAt(0) ?: return 0
+        val last = getChildAt(childCount - 1) ?: return 0
+
+        return maxOf(getDecoratedBottom(first), getDecoratedBottom(last)) - minOf(getDecoratedTop(first), getDecoratedTop(last))
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions.model
+
+import android.os.Parcel
+import android.os.Parcelable
+import java.nio.ByteBuffer
+
+/**
+ * An entry of a [xyz.quaver.floatingsearchview.suggestions.SearchHistoryStore].
+ *
+ * The body is only decoded from the store's file the first time it is read, e.g. when the suggestion is bound.
+ */
+class HistorySuggestion internal constructor(
+    key: BytesKey,
+    count: Int,
+    lastUsed: Long,
+    body: String? = null
+) : SearchSuggestion {
+
+    // points into the store's file until the store copies it to the heap, see detach
+    @Volatile
+    internal var key: BytesKey = key
+        private set
+
+    /**
+     * Number of times the query was added to the history.
+     */
+    var count: Int = count
+        internal set
+
+    /**
+     * Time the query was last added to the history, in milliseconds since the epoch.
+     */
+    var lastUsed: Long = lastUsed
+        internal set
+
+    private var decodedBody: String? = body
+
+    override val body: String
+        get() = decodedBody ?: key.decode().also { decodedBody = it }
+
+    /**
+     * Copies the key to the heap, so that the body can still be decoded once the store's file is truncated or replaced.
+     */
+    internal fun detach() {
+        key = key.copy()
+    }
+
+    override fun describeContents(): Int = 0
+
+    override fun writeToParcel(dest: Parcel, flags: Int) {
+        dest.writeString(body)
+        dest.writeInt(count)
+        dest.writeLong(lastUsed)
+    }
+
+    companion object {
+        @JvmField
+        val CREATOR = object : Parcelable.Creator<HistorySuggestion> {
+            override fun createFromParcel(source: Parcel): HistorySuggestion {
+                val body = source.readString() ?: ""
+
+                return HistorySuggestion(BytesKey.of(body), source.readInt(), source.readLong(), body)
+            }
+
+            override fun newArray(size: Int): Array<HistorySuggestion?> = arrayOfNulls(size)
+        }
+    }
+
+}
+
+/**
+ * UTF-8 encoded bytes of a history query, compared by content without decoding them.
+ */
+internal class BytesKey(val buffer: ByteBuffer, val offset: Int, val length: Int) {
+
+    private val hash: Int = run {
+        var hash = 1
+
+        for (i in offset until offset + length)
+            hash = 31 * hash + buffer.get(i)
+
+        hash
+    }
+
+    fun decode(): String = String(toByteArray(), Charsets.UTF_8)
+
+    /**
+     * Returns this key if its bytes are on the heap, or a copy of it on the heap otherwise, e.g. if they are mapped from a file.
+     */
+    fun copy(): BytesKey =
+        if (buffer.hasArray()) this
+        else toByteArray().let { BytesKey(ByteBuffer.wrap(it), 0, it.size) }
+
+    private fun toByteArray(): ByteArray =
+        ByteArray(length).also { bytes ->
+            for (i in 0 until length)
+                bytes[i] = buffer.get(offset + i)
+        }
+
+    override fun hashCode(): Int = hash
+
+    override fun equals(other: Any?): Boolean {
+        if (other !is BytesKey || other.hash != hash || other.length != length)
+            return false
+
+        for (i in 0 until length)
+            if (buffer.get(offset + i) != other.buffer.get(other.offset + i))
+                return false
+
+        return true
+    }
+
+    companion object {
+        fun of(query: String): BytesKey =
+            query.toByteArray(Charsets.UTF_8).let { BytesKey(ByteBuffer.wrap(it), 0, it.size) }
+    }
+
+}
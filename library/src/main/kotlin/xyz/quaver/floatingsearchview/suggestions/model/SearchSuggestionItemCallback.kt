@@ -0,0 +1,66 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions.model
+
+import android.annotation.SuppressLint
+import androidx.recyclerview.widget.DiffUtil
+
+/**
+ * Identity and content comparator used when diffing suggestion lists.
+ *
+ * By default two suggestions are the same item if they share the same [SearchSuggestion.body],
+ * and have the same contents if they are equal. Override either method to plug in a stable key
+ * or a cheaper content check for your own [SearchSuggestion] implementation.
+ *
+ * The same key gives the suggestion rows their stable ids, see [getItemId].
+ */
+open class SearchSuggestionItemCallback : DiffUtil.ItemCallback<SearchSuggestion>() {
+
+    override fun areItemsTheSame(oldItem: SearchSuggestion, newItem: SearchSuggestion): Boolean =
+        oldItem.body == newItem.body
+
+    @SuppressLint("DiffUtilEquals")
+    override fun areContentsTheSame(oldItem: SearchSuggestion, newItem: SearchSuggestion): Boolean =
+        oldItem == newItem
+
+    /**
+     * Returns the stable id of [item]. Items that are the same must have the same id, so override this along
+     * with [areItemsTheSame]. Defaults to a 64-bit FNV-1a hash of [SearchSuggestion.body].
+     *
+     * Items shown together should have distinct ids; the adapter derives distinct ids for the ones that
+     * don't, in list order, which keeps them stable only as long as their order is.
+     */
+    open fun getItemId(item: SearchSuggestion): Long {
+        var hash = FNV_OFFSET_BASIS
+
+        for (c in item.body) {
+            hash = (hash xor (c.code and 0xFF).toLong()) * FNV_PRIME
+            hash = (hash xor (c.code ushr 8).toLong()) * FNV_PRIME
+        }
+
+        return hash
+    }
+
+    private companion object {
+        const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        const val FNV_PRIME = 0x100000001b3L
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions.model
+
+/**
+ * A source of suggestions, such as the search history, an on-device dictionary or a remote endpoint.
+ *
+ * Sources are queried concurrently by [xyz.quaver.floatingsearchview.suggestions.SuggestionMerger].
+ */
+interface SuggestionSource {
+
+    /**
+     * Suggestions of sources with a higher priority are ranked first.
+     */
+    val priority: Int
+        get() = 0
+
+    /**
+     * Time budget of a single lookup. Suggestions that are not found within it are dropped.
+     */
+    val deadlineMillis: Long
+        get() = Long.MAX_VALUE
+
+    suspend fun suggest(query: String): List<SearchSuggestion>
+
+}
@@ -0,0 +1,37 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.util
+
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * Closes the soft keyboard when the user starts dragging a list.
+ *
+ * A drag enters [RecyclerView.SCROLL_STATE_DRAGGING] once, however many touch events it is made of,
+ * and nothing is allocated per event.
+ */
+internal class KeyboardClosingScrollListener(private val closeKeyboard: () -> Unit) : RecyclerView.OnScrollListener() {
+
+    override fun onScrollStateChanged(recyclerView: RecyclerView, newState: Int) {
+        if (newState == RecyclerView.SCROLL_STATE_DRAGGING)
+            closeKeyboard()
+    }
+
+}
@@ -25,6 +25,7 @@ import android.annotation.SuppressLint
 import android.content.Context
 import android.os.Build
 import android.os.Parcelable
+import android.text.TextUtils
 import android.view.*
 import android.widget.AdapterView
 import android.widget.BaseAdapter
@@ -95,8 +96,16 @@ class MenuPopupHelper(
     private var treeObserver: ViewTreeObserver? = null
     private var presenterCallback: MenuPresenter.Callback? = null
     private var measureParent: ViewGroup? = null
+    private var measureItemView: View? = null
+    private var measureItemType = 0
+
+    // measured on the first show after the items shown by the adapter changed
     private var contentWidth: Int? = null
 
+    // the items and titles contentWidth was measured for
+    private val measuredItems = ArrayList<MenuItemImpl>()
+    private val measuredTitles = ArrayList<CharSequence?>()
+
     init {
         menu.addMenuPresenter(this, context)
     }
@@ -106,14 +115,13 @@ class MenuPopupHelper(
 
     fun show() = tryShow().also{ if (!it) error("MenuPopupHelper cannot be used without an anchor") }
     fun tryShow(): Boolean {
-        val popup = ListPopupWindow(context, null, popupStyleAttr, popupStyleRes).also { popup ->
-            this.popup = popup
-        }
-
-        popup.setOnDismissListener(this)
-        popup.setOnItemClickListener(this)
-        popup.setAdapter(adapter)
-        popup.isModal = true
+        val popup = popup ?: ListPopupWindow(context, null, popupStyleAttr, popupStyleRes).apply {
+            setOnDismissListener(this@MenuPopupHelper)
+            setOnItemClickListener(this@MenuPopupHelper)
+            setAdapter(adapter)
+            isModal = true
+            inputMethodMode = PopupWindow.INPUT_METHOD_NOT_NEEDED
+        }.also { popup = it }
 
         val anchor = (anchorView ?: return false)
         val contentWidth = contentWidth ?: measureContentWidth().also { contentWidth = it }
@@ -126,7 +134,6 @@ class MenuPopupHelper(
         }
 
         popup.setContentWidth(contentWidth)
-        popup.inputMethodMode = PopupWindow.INPUT_METHOD_NOT_NEEDED
 
         val (verticalOffset, horizontalOffset) = when (Build.VERSION.SDK_INT) {
             in 0..20 ->
@@ -151,7 +158,6 @@ class MenuPopupHelper(
     }
 
     override fun onDismiss() {
-        popup = null
         menu.close()
         treeObserver?.let {
             if (!it.isAlive) treeObserver = anchorView?.viewTreeObserver
@@ -177,32 +183,38 @@ class MenuPopupHelper(
         return false
     }
 
+    // item views are kept between measurements and passed back to the adapter as convert views
     private fun measureContentWidth(): Int {
-        var itemView: View? = null
-        var itemType = 0
+        val parent = measureParent ?: FrameLayout(context).also { measureParent = it }
+        var width = 0
+
+        measuredItems.clear()
+        measuredTitles.clear()
+
+        for (i in 0 until adapter.count) {
+            adapter.getItem(i).let {
+                measuredItems.add(it)
+                measuredTitles.add(it.title)
+            }
 
-        return (0 until adapter.count).map { i ->
             adapter.getItemViewType(i).let {
-                if (it != itemType) {
-                    itemType = it
-                    itemView = null
+                if (it != measureItemType) {
+                    measureItemType = it
+                    measureItemView = null
                 }
             }
 
-            adapter.getView(
-                i,
-                itemView,
-                measureParent ?: FrameLayout(context).also { measureParent = it }).let {
-                itemView = it
+            val itemView = adapter.getView(i, measureItemView, parent).also { measureItemView = it }
 
-                it.measure(
-                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED),
-                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
-                )
+            itemView.measure(
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+            )
 
-                min(it.measuredWidth, popupMaxWidth)
-            }
-        }.maxOrNull() ?: 0
+            width = max(width, min(itemView.measuredWidth, popupMaxWidth))
+        }
+
+        return width
     }
 
     override fun onGlobalLayout() {
@@ -224,8 +236,24 @@ class MenuPopupHelper(
     }
 
     override fun updateMenuView(cleared: Boolean) {
-        contentWidth = null
         adapter.notifyDataSetChanged()
+
+        if (!isMeasured())
+            contentWidth = null
+    }
+
+    // whether the adapter still shows the items and titles contentWidth was measured for
+    private fun isMeasured(): Boolean {
+        if (contentWidth == null || adapter.count != measuredItems.size)
+            return false
+
+        for (i in 0 until adapter.count)
+            adapter.getItem(i).let {
+                if (it !== measuredItems[i] || !TextUtils.equals(it.title, measuredTitles[i]))
+                    return false
+            }
+
+        return true
     }
 
     override fun setCallback(cb: MenuPresenter.Callback?) {
@@ -260,7 +288,8 @@ class MenuPopupHelper(
         presenterCallback?.onCloseMenu(menu, allMenusAreClosing)
     }
 
-    override fun flagActionItems(): Boolean = false
+    // an overflow only lists the items its menu's owner didn't flag as actions
+    override fun flagActionItems(): Boolean = overflowOnly
     override fun expandItemActionView(menu: MenuBuilder?, item: MenuItemImpl?): Boolean = false
     override fun collapseItemActionView(menu: MenuBuilder?, item: MenuItemImpl?): Boolean = false
     override fun getId(): Int = 0
@@ -32,18 +32,56 @@ import android.view.inputmethod.InputMethodManager
 import android.widget.EditText
 import android.widget.ImageView
 import androidx.core.graphics.drawable.DrawableCompat
+import androidx.core.view.ViewCompat
 import androidx.core.widget.ImageViewCompat
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlin.coroutines.resume
 
 fun Context.showSoftKeyboard(editText: EditText) = CoroutineScope(Dispatchers.Main).launch {
-    delay(100)
+    showSoftKeyboardWhenReady(editText)
+}
+
+/**
+ * Shows the soft keyboard for [editText] once its window is ready to take input.
+ *
+ * @see awaitWindowInsets
+ */
+internal suspend fun Context.showSoftKeyboardWhenReady(editText: EditText) {
+    editText.awaitWindowInsets()
+
     (getSystemService(Context.INPUT_METHOD_SERVICE) as InputMethodManager)
         .showSoftInput(editText, InputMethodManager.SHOW_FORCED)
 }
 
+/**
+ * Suspends until the window insets are dispatched to this view, that is, until it is attached
+ * and laid out in a window an input method can attach to.
+ */
+internal suspend fun View.awaitWindowInsets() {
+    // the root insets are only reported from Marshmallow on, being laid out is the closest thing to it before
+    if (ViewCompat.isAttachedToWindow(this) && ViewCompat.isLaidOut(this) &&
+        (Build.VERSION.SDK_INT < 23 || ViewCompat.getRootWindowInsets(this) != null))
+        return
+
+    // insets are dispatched during the traversal that follows the attachment, before anything is drawn
+    suspendCancellableCoroutine<Unit> { continuation ->
+        val listener = object : ViewTreeObserver.OnPreDrawListener {
+            override fun onPreDraw(): Boolean {
+                viewTreeObserver.removeOnPreDrawListener(this)
+                continuation.resume(Unit)
+
+                return true
+            }
+        }
+
+        viewTreeObserver.addOnPreDrawListener(listener)
+        continuation.invokeOnCancellation { viewTreeObserver.removeOnPreDrawListener(listener) }
+    }
+}
+
 fun Activity.closeSoftKeyboard() {
     currentFocus?.let {
         (getSystemService(Context.INPUT_METHOD_SERVICE) as InputMethodManager)
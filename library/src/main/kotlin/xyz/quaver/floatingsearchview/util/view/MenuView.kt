@@ -23,7 +23,9 @@ package xyz.quaver.floatingsearchview.util.view
 
 import android.annotation.SuppressLint
 import android.content.Context
+import android.graphics.drawable.Drawable
 import android.util.AttributeSet
+import android.util.SparseArray
 import android.view.LayoutInflater
 import android.view.MenuInflater
 import android.view.View
@@ -34,14 +36,64 @@ import androidx.appcompat.view.menu.MenuBuilder
 import androidx.appcompat.view.menu.MenuItemImpl
 import androidx.appcompat.view.menu.SubMenuBuilder
 import androidx.core.content.ContextCompat
+import androidx.core.graphics.drawable.DrawableCompat
 import xyz.quaver.floatingsearchview.R
 import xyz.quaver.floatingsearchview.util.MenuPopupHelper
 import xyz.quaver.floatingsearchview.util.setIconColor
+import kotlin.math.max
 import kotlin.math.min
 
 private const val HIDE_IF_ROOM_ITEMS_ANIM_DURATION = 400L
 private const val SHOW_IF_ROOM_ITEMS_ANIM_DURATION = 450L
 
+/**
+ * Picks the items shown as actions in [room] action slots. "always" items take the slots first and
+ * "ifRoom" items fill the ones left, both in the order of [items], which the result keeps.
+ *
+ * This takes two passes over [items], whatever the number of slots.
+ *
+ * @param isAlways whether an item is shown as an action if there is room at all, android:showAsAction="always"
+ * @param isIfRoom whether an item is shown as an action if there is room left, android:showAsAction="ifRoom".
+ *                 Items that are both are "always" items.
+ */
+internal fun <T> placeActionItems(
+    items: List<T>,
+    room: Int,
+    isAlways: (T) -> Boolean,
+    isIfRoom: (T) -> Boolean
+): List<T> {
+    var alwaysItemsSize = 0
+    var ifRoomItemsSize = 0
+
+    for (item in items)
+        if (isAlways(item))
+            alwaysItemsSize++
+        else if (isIfRoom(item))
+            ifRoomItemsSize++
+
+    var alwaysItemsLeft = min(alwaysItemsSize, max(0, room))
+    var ifRoomItemsLeft = min(ifRoomItemsSize, max(0, room) - alwaysItemsLeft)
+
+    val placedItems = ArrayList<T>(alwaysItemsLeft + ifRoomItemsLeft)
+
+    for (item in items) {
+        if (alwaysItemsLeft + ifRoomItemsLeft == 0)
+            break
+
+        if (isAlways(item)) {
+            if (alwaysItemsLeft > 0) {
+                placedItems.add(item)
+                alwaysItemsLeft--
+            }
+        } else if (ifRoomItemsLeft > 0 && isIfRoom(item)) {
+            placedItems.add(item)
+            ifRoomItemsLeft--
+        }
+    }
+
+    return placedItems
+}
+
 class MenuView @JvmOverloads constructor(context: Context, attrs: AttributeSet? = null, defStyle: Int = 0) : LinearLayout(context, attrs, defStyle) {
 
     private val actionDimension : Int = resources.getDimensionPixelSize(R.dimen.square_button_size)
@@ -49,7 +101,24 @@ class MenuView @JvmOverloads constructor(context: Context, attrs: AttributeSet?
     private var menu = -1
     private var menuBuilder = MenuBuilder(context)
     private var menuInflater: SupportMenuInflater? = null
-    private var menuPopupHelper = MenuPopupHelper(context, menuBuilder, this)
+    private var menuPopupHelper = MenuPopupHelper(context, menuBuilder, this, overflowOnly = true)
+
+    // a menu resource parsed once and reused by every reset to it
+    private class InflatedMenu(val builder: MenuBuilder, val popupHelper: MenuPopupHelper)
+    private val inflatedMenus = SparseArray<InflatedMenu>()
+
+    // action views are rebound to the items placed by each reset rather than inflated again
+    private val actionViews = mutableListOf<ImageView>()
+    private var overflowView: ImageView? = null
+
+    private val actionClickListener = View.OnClickListener { view ->
+        val item = view.tag as MenuItemImpl
+
+        (item.subMenu as? SubMenuBuilder)?.let { subMenu ->
+            MenuPopupHelper(context, subMenu, this).show()
+        }
+        menuCallback?.onMenuItemSelected(menuBuilder, item)
+    }
 
     /**
      * Callback that will be called when menu items are selected.
@@ -93,9 +162,9 @@ class MenuView @JvmOverloads constructor(context: Context, attrs: AttributeSet?
      * Resets the the view to fit into a new
      * available width.
      * <p/>
-     * <p>This clears and then re-inflates the menu items
-     * , removes all of its associated action views, and re-creates
-     * the menu and action items to fit in the new width.</p>
+     * <p>The menu is only inflated the first time it is reset to, and the action views
+     * are reused. When neither the menu nor the items that fit in the new width change,
+     * the views are left untouched.</p>
      *
      * @param availWidth the width available for the menu to use. If
      *                   there is room, menu items that are flagged with
@@ -103,91 +172,109 @@ class MenuView @JvmOverloads constructor(context: Context, attrs: AttributeSet?
      *                   will show as actions.
      */
     fun reset(menu: Int, availWidth: Int) {
-        this.menu = menu.also {
-            if (it < 0)
-                return
-        }
+        if (menu < 0)
+            return
 
-        actionItems.clear()
-        menuItems.clear()
-        menuBuilder = MenuBuilder(context)
-        menuPopupHelper = MenuPopupHelper(context, menuBuilder, this)
+        val isMenuChanged = menu != this.menu
+        this.menu = menu
 
-        // clean view and re-inflate
-        removeAllViews()
-        getMenuInflater().inflate(menu, menuBuilder)
+        val inflated = inflatedMenus[menu] ?: inflate(menu).also { inflatedMenus.put(menu, it) }
+        menuBuilder = inflated.builder
+        menuPopupHelper = inflated.popupHelper
+
+        menuItems.clear()
+        repeat(menuBuilder.size()) { i ->
+            menuItems += menuBuilder.getItem(i) as MenuItemImpl
+        }
+        menuItems.sortBy { it.order }
 
-        menuItems += (menuBuilder.actionItems + menuBuilder.nonActionItems)
-            .sortedBy { it.order }
+        // the app may have changed the visibility of the items since the last reset
+        val visibleItems = menuItems.filter { it.isVisible }
 
-        val actionItemsSize = menuItems.count {
+        val actionItemsSize = visibleItems.count {
             it.icon != null && (it.requiresActionButton() || it.requestsActionButton())
         }
 
-        hasOverflow = actionItemsSize < menuItems.size ||
+        val hadOverflow = hasOverflow
+        hasOverflow = actionItemsSize < visibleItems.size ||
                 availWidth/actionDimension < actionItemsSize
 
-        var availItemRoom = availWidth / actionDimension - if (hasOverflow) 1 else 0
-
-        val localActionItems = MutableList<MenuItemImpl?>(min(actionItemsSize, availItemRoom)) { null }.apply {
-            while (availItemRoom > 0) {
-                this.add(menuItems.firstOrNull {
-                    it.icon != null && it.requiresActionButton() && !this.contains(it)
-                } ?: break)
-                availItemRoom--
-            }
-
-            while (availItemRoom > 0) {
-                val item = menuItems.firstOrNull {
-                    it.icon != null && it.requestsActionButton() && !this.contains(it)
-                } ?: break
-
-                val index = menuItems.indexOfFirst {
-                    it.requiresActionButton() && menuItems.indexOf(item) < menuItems.indexOf(it)
-                }
+        val localActionItems = placeActionItems(
+            visibleItems,
+            availWidth / actionDimension - if (hasOverflow) 1 else 0,
+            { it.icon != null && it.requiresActionButton() },
+            { it.icon != null && it.requestsActionButton() }
+        )
+
+        if (!isMenuChanged && hadOverflow == hasOverflow &&
+            localActionItems.size == actionItems.size && localActionItems.indices.all { localActionItems[it] === actionItems[it].first }) {
+            // the app may have changed the icons or titles of the placed items
+            actionItems.forEach { (item, view) -> view.bindActionItem(item) }
+            showIfRoomItems()
+            return
+        }
 
-                if (index < 0)
-                    this.add(item)
-                else
-                    this.add(index, item)
+        // the overflow lists the items that are not flagged as actions
+        val placedItems = localActionItems.toHashSet()
+        menuItems.forEach { it.setIsActionButton(it in placedItems) }
+        menuBuilder.onItemsChanged(true)
 
-                availItemRoom--
-            }
-        }.filterNotNull()
-
-        localActionItems.forEach {
-            addView(createActionView().apply {
-                contentDescription = it.title
-                setImageDrawable(it.icon)
-                setIconColor(actionIconColor)
-
-                setOnClickListener { _ ->
-                    (it.subMenu as? SubMenuBuilder)?.let { subMenu ->
-                        MenuPopupHelper(context, subMenu, this@MenuView).show()
-                    }
-                    menuCallback?.onMenuItemSelected(menuBuilder, it)
-                }
+        removeAllViews()
+        actionItems.clear()
 
-                actionItems.add(Pair(it, this))
+        localActionItems.forEachIndexed { i, item ->
+            addView((actionViews.getOrNull(i) ?: createActionView().also {
+                it.setOnClickListener(actionClickListener)
+                actionViews += it
+            }).apply {
+                tag = item
+                visibility = View.VISIBLE
+                contentDescription = item.title
+                // a pooled view may still be tinted with a previous color
+                setIcon(item.icon)
+
+                actionItems.add(Pair(item, this))
             })
-
-            menuBuilder.removeItem(it.itemId)
         }
 
         if (hasOverflow) {
-            addView(createOverflowActionView().apply {
+            addView((overflowView ?: createOverflowActionView().apply {
                 setImageDrawable(ContextCompat.getDrawable(context, R.drawable.dots_vertical))
-                setIconColor(overflowColor)
 
                 setOnClickListener {
                     menuPopupHelper.show()
                 }
+            }.also { overflowView = it }).apply {
+                visibility = View.VISIBLE
+                setIconColor(overflowColor)
             })
 
             menuBuilder.setCallback(menuCallback)
         }
     }
 
+    private fun inflate(menu: Int): InflatedMenu {
+        val builder = MenuBuilder(context)
+        getMenuInflater().inflate(menu, builder)
+
+        return InflatedMenu(builder, MenuPopupHelper(context, builder, this, overflowOnly = true))
+    }
+
+    private fun ImageView.bindActionItem(item: MenuItemImpl) {
+        contentDescription = item.title
+        // the tint wraps the icon below API 23, so compare against the wrapped one
+        val icon = item.icon
+        val current = drawable?.let { DrawableCompat.unwrap<Drawable>(it) }
+        if (icon == null || current !== icon)
+            setIcon(icon)
+    }
+
+    private fun ImageView.setIcon(icon: Drawable?) {
+        setImageDrawable(icon)
+        if (icon != null)
+            setIconColor(actionIconColor)
+    }
+
     private fun createActionView(): ImageView =
         LayoutInflater.from(context).inflate(R.layout.action_item_layout, this, false) as ImageView
 
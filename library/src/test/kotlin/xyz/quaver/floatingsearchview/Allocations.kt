@@ -0,0 +1,41 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview
+
+import org.junit.Assume.assumeTrue
+import java.lang.management.ManagementFactory
+
+/**
+ * Returns the number of bytes allocated by the current thread while running [block].
+ * Skips the calling test on JVMs that don't count them.
+ */
+inline fun allocatedBytes(block: () -> Unit): Long {
+    val threads = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+
+    assumeTrue(threads?.isThreadAllocatedMemorySupported == true)
+    threads!!.isThreadAllocatedMemoryEnabled = true
+
+    val thread = Thread.currentThread().id
+    val before = threads.getThreadAllocatedBytes(thread)
+
+    block()
+
+    return threads.getThreadAllocatedBytes(thread) - before
+}
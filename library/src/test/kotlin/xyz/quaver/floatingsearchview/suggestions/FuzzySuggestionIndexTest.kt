@@ -0,0 +1,105 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.os.Parcel
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+import kotlin.random.Random
+
+class FuzzySuggestionIndexTest {
+
+    private class Suggestion(override val body: String) : SearchSuggestion {
+        override fun describeContents(): Int = 0
+        override fun writeToParcel(dest: Parcel, flags: Int) = dest.writeString(body)
+    }
+
+    // long enough for any of these lookups to run to the end
+    private val timeBudgetNanos = 10_000_000_000L
+
+    private fun levenshtein(a: String, b: String): Int {
+        var previous = IntArray(b.length + 1) { it }
+
+        for (i in 1..a.length) {
+            val row = IntArray(b.length + 1).also { it[0] = i }
+
+            for (j in 1..b.length)
+                row[j] = minOf(
+                    previous[j - 1] + if (a[i - 1] == b[j - 1]) 0 else 1,
+                    previous[j] + 1,
+                    row[j - 1] + 1
+                )
+
+            previous = row
+        }
+
+        return previous[b.length]
+    }
+
+    // the closest distance between a prefix of every key and the query, computed key by key
+    private fun bruteForceFind(suggestions: List<Suggestion>, query: String, limit: Int, maxDistance: Int): List<Suggestion> {
+        val normalizedQuery = PrefixSuggestionIndex.normalize(query)
+
+        return suggestions
+            .map { PrefixSuggestionIndex.normalize(it.body) to it }
+            .sortedBy { it.first }
+            .map { (key, suggestion) ->
+                (0..key.length).minOf { levenshtein(key.substring(0, it), normalizedQuery) } to suggestion
+            }
+            .filter { it.first <= maxDistance }
+            .sortedBy { it.first }
+            .take(limit)
+            .map { it.second }
+    }
+
+    private fun randomWord(random: Random, alphabet: String, maxLength: Int) =
+        String(CharArray(random.nextInt(maxLength + 1)) { alphabet[random.nextInt(alphabet.length)] })
+
+    @Test
+    fun findsTypos() {
+        val index = FuzzySuggestionIndex(listOf("red", "green", "green yellow", "blue").map { Suggestion(it) })
+
+        assertEquals(listOf("green", "green yellow"), index.find("grean", 2, timeBudgetNanos = timeBudgetNanos).map { it.body })
+        assertEquals(listOf("green", "green yellow"), index.find("gren", 2, timeBudgetNanos = timeBudgetNanos).map { it.body })
+        assertEquals(listOf("red"), index.find("Rde", 1, timeBudgetNanos = timeBudgetNanos).map { it.body })
+    }
+
+    @Test
+    fun findsTheSameSuggestionsAsABruteForceSearch() {
+        val random = Random(9157)
+
+        repeat(2000) {
+            val suggestions = List(1 + random.nextInt(60)) { Suggestion(randomWord(random, "abcAB", 7)) }
+            val index = FuzzySuggestionIndex(suggestions)
+
+            val query = randomWord(random, "abcd", 5)
+            val limit = 1 + random.nextInt(8)
+            val maxDistance = random.nextInt(4)
+
+            assertEquals(
+                "$query in ${suggestions.map { it.body }}, limit $limit, max distance $maxDistance",
+                bruteForceFind(suggestions, query, limit, maxDistance),
+                index.find(query, limit, maxDistance, timeBudgetNanos)
+            )
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import xyz.quaver.floatingsearchview.suggestions.model.HistorySuggestion
+import java.io.File
+import java.io.RandomAccessFile
+
+class SearchHistoryStoreTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val file: File by lazy { File(folder.root, "history") }
+
+    private fun open(compactionThreshold: Int = 1024) =
+        SearchHistoryStore.open(file, compactionThreshold = compactionThreshold)
+
+    private fun SearchHistoryStore.entries(): Map<String, HistorySuggestion> =
+        top(Int.MAX_VALUE).associateBy { it.body }
+
+    @Test
+    fun reopensWithTheAddedAndRemovedQueries() {
+        open().use {
+            it.add("apple", 1000)
+            it.add("banana", 2000)
+            it.add("apple", 3000)
+            it.add("cherry", 4000)
+            it.remove("banana")
+        }
+
+        open().use {
+            val entries = it.entries()
+
+            assertEquals(setOf("apple", "cherry"), entries.keys)
+            assertEquals(2, entries.getValue("apple").count)
+            assertEquals(3000L, entries.getValue("apple").lastUsed)
+            assertEquals(1, entries.getValue("cherry").count)
+            assertEquals(4000L, entries.getValue("cherry").lastUsed)
+        }
+    }
+
+    @Test
+    fun dropsARecordCutShort() {
+        open().use {
+            it.add("apple", 1000)
+            it.add("banana", 2000)
+        }
+
+        // cut the last record in the middle of its body
+        RandomAccessFile(file, "rw").use { it.setLength(it.length() - 3) }
+
+        open().use {
+            assertEquals(setOf("apple"), it.entries().keys)
+
+            it.add("cherry", 3000)
+        }
+
+        // the partial record is gone, so the next one is appended after the complete ones
+        open().use {
+            assertEquals(setOf("apple", "cherry"), it.entries().keys)
+        }
+    }
+
+    @Test
+    fun compactionKeepsCountsAndTimes() {
+        open().use { store ->
+            repeat(3) { store.add("apple", 1000L + it) }
+            store.add("banana", 2000)
+            store.add("cherry", 3000)
+            store.remove("cherry")
+
+            store.compact()
+
+            // a single record per entry
+            assertEquals(2L * 16 + "apple".length + "banana".length, file.length())
+        }
+
+        open().use {
+            val entries = it.entries()
+
+            assertEquals(setOf("apple", "banana"), entries.keys)
+            assertEquals(3, entries.getValue("apple").count)
+            assertEquals(1002L, entries.getValue("apple").lastUsed)
+            assertEquals(1, entries.getValue("banana").count)
+            assertEquals(2000L, entries.getValue("banana").lastUsed)
+        }
+    }
+
+    @Test
+    fun compactsOnceTheThresholdIsExceeded() {
+        open(compactionThreshold = 8).use { store ->
+            repeat(9) { store.add("apple", it.toLong()) }
+
+            assertEquals(16L + "apple".length, file.length())
+            assertEquals(9, store.entries().getValue("apple").count)
+        }
+    }
+
+    @Test
+    fun decodesHandedOutEntriesAfterClear() {
+        open().use { it.add("apple", 1000) }
+
+        open().use { store ->
+            // read from the mapped file, not decoded yet
+            val entry = store.top(1).single()
+
+            store.clear()
+            store.add("banana", 2000)
+
+            assertEquals("apple", entry.body)
+            assertEquals(setOf("banana"), store.entries().keys)
+        }
+    }
+
+    @Test
+    fun decodesHandedOutEntriesAfterCompaction() {
+        open().use {
+            it.add("apple", 1000)
+            it.add("banana", 2000)
+            it.remove("banana")
+        }
+
+        open().use { store ->
+            val entry = store.top(1).single()
+
+            store.compact()
+            store.add("cherry", 3000)
+
+            assertEquals("apple", entry.body)
+            assertNull(store.entries()["banana"])
+            assertEquals(setOf("apple", "cherry"), store.entries().keys)
+        }
+    }
+
+}
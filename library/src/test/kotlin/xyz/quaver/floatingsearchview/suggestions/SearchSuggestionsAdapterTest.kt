@@ -0,0 +1,105 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.content.Context
+import android.content.res.ColorStateList
+import android.graphics.Color
+import android.os.Parcel
+import android.view.ContextThemeWrapper
+import android.view.View
+import android.widget.FrameLayout
+import androidx.core.widget.ImageViewCompat
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import xyz.quaver.floatingsearchview.allocatedBytes
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+
+@RunWith(RobolectricTestRunner::class)
+class SearchSuggestionsAdapterTest {
+
+    private class Suggestion(override val body: String) : SearchSuggestion {
+        override fun describeContents(): Int = 0
+        override fun writeToParcel(dest: Parcel, flags: Int) = dest.writeString(body)
+    }
+
+    private val context = ContextThemeWrapper(
+        ApplicationProvider.getApplicationContext<Context>(),
+        androidx.appcompat.R.style.Theme_AppCompat_Light
+    )
+
+    private val adapter = SearchSuggestionsAdapter(context, 14).apply {
+        reverseList = false
+        textColor = Color.BLACK
+        rightIconColor = Color.GRAY
+        swapData(listOf(Suggestion("apple"), Suggestion("banana")))
+    }
+
+    private val holder = adapter.onCreateViewHolder(FrameLayout(context), SearchSuggestionsAdapter.VIEW_TYPE_SUGGESTION)
+
+    @Test
+    fun steadyStateRebindDoesNotAllocate() {
+        repeat(100) { adapter.onBindViewHolder(holder, 0) }
+
+        val allocated = allocatedBytes {
+            repeat(10_000) { adapter.onBindViewHolder(holder, 0) }
+        }
+
+        // a single object per bind would take hundreds of kilobytes
+        assertTrue("$allocated bytes allocated", allocated < 1024)
+    }
+
+    @Test
+    fun suggestionsWithTheSameBodyHaveDistinctStableIds() {
+        adapter.swapData(listOf(Suggestion("apple"), Suggestion("apple"), Suggestion("banana")))
+
+        val ids = (0 until adapter.itemCount).map { adapter.getItemId(it) }
+
+        assertEquals(3, ids.toSet().size)
+
+        // the first suggestion with a body keeps the id of the body
+        adapter.swapData(listOf(Suggestion("apple")))
+        assertEquals(ids[0], adapter.getItemId(0))
+    }
+
+    @Test
+    fun rebindRestoresTheStyleChangedByTheBindCallback() {
+        adapter.onBindSuggestionCallback = { binding, item, _ ->
+            if (item.body == "banana") {
+                binding.body.setTextColor(Color.RED)
+                binding.rightIcon.visibility = View.VISIBLE
+                ImageViewCompat.setImageTintList(binding.rightIcon, ColorStateList.valueOf(Color.RED))
+            }
+        }
+
+        adapter.onBindViewHolder(holder, 1)
+        adapter.onBindViewHolder(holder, 0)
+
+        assertEquals("apple", holder.item?.body)
+        assertEquals(Color.BLACK, holder.binding.body.currentTextColor)
+        assertEquals(View.INVISIBLE, holder.binding.rightIcon.visibility)
+        assertEquals(Color.GRAY, ImageViewCompat.getImageTintList(holder.binding.rightIcon)?.defaultColor)
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.suggestions
+
+import android.os.Parcel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import xyz.quaver.floatingsearchview.suggestions.model.SearchSuggestion
+import xyz.quaver.floatingsearchview.suggestions.model.SuggestionSource
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class SuggestionMergerTest {
+
+    private class Suggestion(override val body: String) : SearchSuggestion {
+        override fun describeContents(): Int = 0
+        override fun writeToParcel(dest: Parcel, flags: Int) = dest.writeString(body)
+    }
+
+    private class Source(
+        override val priority: Int,
+        vararg bodies: String,
+        override val deadlineMillis: Long = Long.MAX_VALUE,
+        private val lookup: suspend (List<SearchSuggestion>) -> List<SearchSuggestion> = { it }
+    ) : SuggestionSource {
+        val suggestions: List<SearchSuggestion> = bodies.map { Suggestion(it) }
+
+        override suspend fun suggest(query: String): List<SearchSuggestion> = lookup(suggestions)
+    }
+
+    private fun SuggestionMerger.queryBlocking(text: String) =
+        runBlocking { query(text) }.map { it.body }
+
+    @Test
+    fun ranksByPriorityKeepingTheOrderOfEachSource() {
+        val merger = SuggestionMerger(listOf(
+            Source(0, "c", "d"),
+            Source(1, "a", "b")
+        ))
+
+        assertEquals(listOf("a", "b", "c", "d"), merger.queryBlocking("q"))
+    }
+
+    @Test
+    fun dropsASourceThatMissesItsDeadline() {
+        val merger = SuggestionMerger(listOf(
+            Source(1, "slow", deadlineMillis = 50) { delay(60_000); it },
+            Source(0, "fast", deadlineMillis = 5_000)
+        ))
+
+        val start = System.nanoTime()
+
+        assertEquals(listOf("fast"), merger.queryBlocking("q"))
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000)
+    }
+
+    @Test
+    fun doesNotWaitForASourceIgnoringCancellation() {
+        val release = CountDownLatch(1)
+
+        val merger = SuggestionMerger(listOf(
+            // blocks its thread without checking for cancellation
+            Source(1, "stuck", deadlineMillis = 50) { release.await(); it },
+            Source(0, "fast")
+        ))
+
+        try {
+            assertEquals(listOf("fast"), merger.queryBlocking("q"))
+        } finally {
+            release.countDown()
+        }
+    }
+
+    @Test
+    fun dropsAFailingSource() {
+        val merger = SuggestionMerger(listOf(
+            Source(1, "broken") { throw IllegalStateException() },
+            Source(0, "a", "b")
+        ))
+
+        assertEquals(listOf("a", "b"), merger.queryBlocking("q"))
+    }
+
+    @Test
+    fun keepsTheSuggestionOfTheHigherPrioritySource() {
+        val low = Source(0, "a", "shared")
+        val high = Source(2, "shared", "b")
+        val merger = SuggestionMerger(listOf(low, high, Source(1, "shared", "c")))
+
+        val merged = runBlocking { merger.query("q") }
+
+        assertEquals(listOf("shared", "b", "c", "a"), merged.map { it.body })
+        assertSame(high.suggestions[0], merged[0])
+    }
+
+    @Test
+    fun limitsTheMergedSuggestions() {
+        val sources = listOf(Source(1, "a", "b"), Source(0, "b", "c", "d"))
+
+        assertEquals(listOf("a", "b", "c"), SuggestionMerger(sources, limit = 3).queryBlocking("q"))
+        assertEquals(emptyList<String>(), SuggestionMerger(sources, limit = 0).queryBlocking("q"))
+        assertEquals(listOf("a", "b", "c", "d"), SuggestionMerger(sources, limit = 10).queryBlocking("q"))
+    }
+
+}
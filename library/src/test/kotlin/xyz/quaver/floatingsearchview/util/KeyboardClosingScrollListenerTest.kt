@@ -0,0 +1,67 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.util
+
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import xyz.quaver.floatingsearchview.allocatedBytes
+
+@RunWith(RobolectricTestRunner::class)
+class KeyboardClosingScrollListenerTest {
+
+    private val recyclerView = RecyclerView(ApplicationProvider.getApplicationContext())
+
+    private var closeCount = 0
+    private val listener = KeyboardClosingScrollListener { closeCount++ }
+
+    // a drag followed by a fling, as dispatched by the list for every scroll gesture
+    private fun scroll() {
+        listener.onScrollStateChanged(recyclerView, RecyclerView.SCROLL_STATE_DRAGGING)
+        repeat(10) { listener.onScrolled(recyclerView, 0, 12) }
+        listener.onScrollStateChanged(recyclerView, RecyclerView.SCROLL_STATE_SETTLING)
+        repeat(10) { listener.onScrolled(recyclerView, 0, 12) }
+        listener.onScrollStateChanged(recyclerView, RecyclerView.SCROLL_STATE_IDLE)
+    }
+
+    @Test
+    fun closesTheKeyboardOncePerDrag() {
+        repeat(3) { scroll() }
+
+        assertEquals(3, closeCount)
+    }
+
+    @Test
+    fun scrollingDoesNotAllocate() {
+        repeat(100) { scroll() }
+
+        val allocated = allocatedBytes {
+            repeat(10_000) { scroll() }
+        }
+
+        // a single object per gesture would take hundreds of kilobytes
+        assertTrue("$allocated bytes allocated", allocated < 1024)
+    }
+
+}
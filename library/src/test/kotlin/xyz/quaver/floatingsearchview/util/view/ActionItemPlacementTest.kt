@@ -0,0 +1,141 @@
+/*
+ *     tom5079/FloatingSearchView was ported from arimorty/FloatingSearchView
+ *
+ *     Copyright 2015 Ari C.
+ *     Copyright 2020 tom5079
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package xyz.quaver.floatingsearchview.util.view
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.math.min
+import kotlin.random.Random
+
+class ActionItemPlacementTest {
+
+    private class Item(val hasIcon: Boolean, val always: Boolean, val ifRoom: Boolean) {
+        val isAlways get() = hasIcon && always
+        val isIfRoom get() = hasIcon && ifRoom
+    }
+
+    // the placement MenuView.reset did before it was made linear, kept as the reference
+    private fun legacyPlaceActionItems(menuItems: List<Item>, room: Int): List<Item> {
+        val actionItemsSize = menuItems.count { it.hasIcon && (it.always || it.ifRoom) }
+        var availItemRoom = room
+
+        return MutableList<Item?>(min(actionItemsSize, availItemRoom)) { null }.apply {
+            while (availItemRoom > 0) {
+                this.add(menuItems.firstOrNull {
+                    it.hasIcon && it.always && !this.contains(it)
+                } ?: break)
+                availItemRoom--
+            }
+
+            while (availItemRoom > 0) {
+                val item = menuItems.firstOrNull {
+                    it.hasIcon && it.ifRoom && !this.contains(it)
+                } ?: break
+
+                val index = menuItems.indexOfFirst {
+                    it.always && menuItems.indexOf(item) < menuItems.indexOf(it)
+                }
+
+                if (index < 0)
+                    this.add(item)
+                else
+                    this.add(index, item)
+
+                availItemRoom--
+            }
+        }.filterNotNull()
+    }
+
+    private fun place(items: List<Item>, room: Int) =
+        placeActionItems(items, room, { it.isAlways }, { it.isIfRoom })
+
+    private fun randomMenu(random: Random, size: Int) = List(size) {
+        val flags = random.nextFloat()
+
+        Item(random.nextFloat() < 0.8f, flags < 0.3f, flags >= 0.25f && flags < 0.6f)
+    }
+
+    @Test
+    fun placesTheSameItemsAsTheLegacyPlacement() {
+        val random = Random(5079)
+        var checked = 0
+
+        repeat(20_000) {
+            val items = randomMenu(random, random.nextInt(40))
+            val room = random.nextInt(12)
+
+            // the legacy placement inserted "ifRoom" items at menu positions, which could be past the end of its list
+            val legacy = try {
+                legacyPlaceActionItems(items, room)
+            } catch (e: IndexOutOfBoundsException) {
+                return@repeat
+            }
+            val placed = place(items, room)
+
+            assertEquals(legacy.toSet(), placed.toSet())
+            // the legacy order mixed list and menu positions, the placed items now keep the menu order
+            assertEquals(placed.sortedBy { items.indexOf(it) }, placed)
+
+            checked++
+        }
+
+        assertTrue(checked > 10_000)
+    }
+
+    @Test
+    fun placesNothingWithoutRoom() {
+        val items = List(4) { Item(hasIcon = true, always = true, ifRoom = false) }
+
+        assertEquals(emptyList<Item>(), place(items, 0))
+        assertEquals(emptyList<Item>(), place(items, -1))
+    }
+
+    @Test
+    fun alwaysItemsTakeTheRoomFirst() {
+        val ifRoom = Item(hasIcon = true, always = false, ifRoom = true)
+        val always = Item(hasIcon = true, always = true, ifRoom = false)
+        val noIcon = Item(hasIcon = false, always = true, ifRoom = false)
+        val items = listOf(ifRoom, noIcon, always)
+
+        assertEquals(listOf(always), place(items, 1))
+        assertEquals(listOf(ifRoom, always), place(items, 2))
+        assertEquals(listOf(ifRoom, always), place(items, 3))
+    }
+
+    @Test
+    fun visitsEachItemAtMostTwice() {
+        val random = Random(5079)
+
+        // "ifRoom" items only, which made the legacy placement scan the menu once per slot
+        fun ifRoomMenu(size: Int) = List(size) { Item(hasIcon = true, always = false, ifRoom = true) }
+
+        for (size in intArrayOf(8, 32, 128, 512, 2048)) {
+            for (items in listOf(ifRoomMenu(size), randomMenu(random, size))) {
+                var calls = 0
+
+                placeActionItems(items, size / 2, { calls++; it.isAlways }, { calls++; it.isIfRoom })
+
+                assertTrue("$calls predicate calls for $size items", calls <= 4 * size)
+            }
+        }
+    }
+
+}